@@ -0,0 +1,91 @@
+package com.xqmsg.sdk.v2.algorithms;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XOR throughput of {@link XorKernel} against the byte-at-a-time loop with a modulo per byte it replaced,
+ * from text sized ( 1 KB ) to file sized ( 1 GB ) data, in place.<br>
+ * It lives in the package of the kernel, which is not public. The `bytes` counter is reported per second:
+ * divide it by 1e9 for GB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx3g"})
+public class XorKernelBenchmark {
+
+  @Param({"1024", "65536", "1048576", "67108864", "1073741824"})
+  int size;
+
+  private byte[] key;
+  private XorKernel kernel;
+  private byte[] data;
+  private ByteBuffer direct;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    // expanded keys are never longer than 4096 bytes, so larger data wraps around the key
+    key = new OTPv2Encryption().expandKey(UUID.randomUUID().toString(), 4096).getBytes(StandardCharsets.UTF_8);
+    kernel = new XorKernel(key);
+    data = new byte[size];
+    ThreadLocalRandom.current().nextBytes(data);
+    direct = ByteBuffer.allocateDirect(size);
+    direct.put(data).flip();
+  }
+
+  @Benchmark
+  public int kernel(Bytes bytes) {
+    bytes.bytes += size;
+    return kernel.apply(data, 0, size, 0);
+  }
+
+  @Benchmark
+  public int kernelDirectBuffer(Bytes bytes) {
+    bytes.bytes += size;
+    direct.clear();
+    return kernel.apply(direct, direct.duplicate(), 0);
+  }
+
+  @Benchmark
+  public byte[] scalarModulo(Bytes bytes) {
+    bytes.bytes += size;
+    final byte[] encoded = data;
+    final byte[] expandedKeyData = key;
+    for (int x = 0; x < encoded.length; ++x) {
+      encoded[x] ^= expandedKeyData[x % expandedKeyData.length];
+    }
+    return encoded;
+  }
+
+}
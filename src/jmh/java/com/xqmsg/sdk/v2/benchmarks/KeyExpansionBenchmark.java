@@ -0,0 +1,88 @@
+package com.xqmsg.sdk.v2.benchmarks;
+
+import com.xqmsg.sdk.v2.algorithms.OTPv2Encryption;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XQAlgorithm#expandKey} and {@link XQAlgorithm#expandKeyBytes} against the string concatenation they replaced,
+ * reproduced here as `concatenation`. Run it with the allocation profiler to compare bytes allocated per expansion:
+ * <pre>java --enable-preview -jar target/benchmarks.jar KeyExpansionBenchmark -prof gc</pre>
+ * `entropy` is a 64 character hex key, as returned by the quantum server; `words` is a key with whitespace, whose copies are shuffled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class KeyExpansionBenchmark {
+
+  @Param({"entropy", "words"})
+  String keyKind;
+
+  @Param({"2048", "4096"})
+  int extendTo;
+
+  private final XQAlgorithm algorithm = new OTPv2Encryption();
+
+  private String key;
+
+  @Setup
+  public void setup() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 64; ++i) {
+      if ("words".equals(keyKind) && i % 8 == 7) {
+        builder.append(' ');
+      } else {
+        builder.append(Character.forDigit(ThreadLocalRandom.current().nextInt(16), 16));
+      }
+    }
+    key = builder.toString();
+  }
+
+  @Benchmark
+  public String expandKey() {
+    return algorithm.expandKey(key, extendTo);
+  }
+
+  @Benchmark
+  public byte[] expandKeyBytes() {
+    return algorithm.expandKeyBytes(key, extendTo);
+  }
+
+  @Benchmark
+  public String concatenation() {
+    String g = key;
+    while (g.length() < extendTo) {
+      g += shuffle(key);
+    }
+    return g;
+  }
+
+  private static String shuffle(String s) {
+    var a = s.split("\\s");
+    final int n = a.length;
+    for (int i = n - 1; i > 0; i--) {
+      int j = (int) Math.floor(Math.random() * (i + 1));
+      String tmp = a[i];
+      a[i] = a[j];
+      a[j] = tmp;
+    }
+    return String.join(" ", a);
+  }
+
+}
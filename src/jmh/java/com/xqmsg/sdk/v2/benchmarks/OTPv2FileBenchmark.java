@@ -0,0 +1,109 @@
+package com.xqmsg.sdk.v2.benchmarks;
+
+import com.xqmsg.sdk.v2.CallStatus;
+import com.xqmsg.sdk.v2.ServerResponse;
+import com.xqmsg.sdk.v2.algorithms.OTPv2Encryption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTPv2 file encryption and decryption, sequential ( `parallelism` 0 ) and split into chunks on a pool of
+ * `parallelism` threads, to show how the parallel mode scales with the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class OTPv2FileBenchmark {
+
+  @Param({"0", "1", "2", "4", "8"})
+  int parallelism;
+
+  @Param({"268435456"})
+  long fileSize;
+
+  private ForkJoinPool cpuExecutor;
+  private ExecutorService ioExecutor;
+  private OTPv2Encryption otp;
+
+  private Path workDir;
+  private Path source;
+  private Path encrypted;
+  private Path decrypted;
+  private String key;
+
+  @Setup
+  public void setup() throws IOException {
+    cpuExecutor = new ForkJoinPool(Math.max(1, parallelism));
+    ioExecutor = Executors.newCachedThreadPool();
+    otp = new OTPv2Encryption(cpuExecutor, ioExecutor, OTPv2Encryption.DEFAULT_BUFFER_SIZE,
+            parallelism == 0 ? -1 : OTPv2Encryption.DEFAULT_PARALLEL_THRESHOLD);
+
+    workDir = Files.createTempDirectory("xq-otp-benchmark");
+    source = workDir.resolve("source.bin");
+    encrypted = workDir.resolve("source.bin.xqf");
+    decrypted = workDir.resolve("source.out.bin");
+
+    byte[] block = new byte[1024 * 1024];
+    try (OutputStream out = Files.newOutputStream(source)) {
+      for (long written = 0; written < fileSize; written += block.length) {
+        ThreadLocalRandom.current().nextBytes(block);
+        out.write(block, 0, (int) Math.min(block.length, fileSize - written));
+      }
+    }
+    key = otp.expandKey(UUID.randomUUID().toString(), 4096);
+    check(otp.encrypt(source, encrypted, key, "benchmark-locator").join());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    cpuExecutor.shutdown();
+    ioExecutor.shutdown();
+    for (Path path : new Path[]{source, encrypted, decrypted}) {
+      Files.deleteIfExists(path);
+    }
+    Files.deleteIfExists(workDir);
+  }
+
+  @Benchmark
+  public ServerResponse encrypt() {
+    return check(otp.encrypt(source, encrypted, key, "benchmark-locator").join());
+  }
+
+  @Benchmark
+  public ServerResponse decrypt() {
+    return check(otp.decrypt(encrypted, decrypted, (locatorToken) -> CompletableFuture.completedFuture(key)).join());
+  }
+
+  private static ServerResponse check(ServerResponse response) {
+    if (response == null || response.status != CallStatus.Ok) {
+      throw new IllegalStateException(String.format("OTPv2 file benchmark failed: %s", response == null ? null : response.moreInfo()));
+    }
+    return response;
+  }
+
+}
@@ -2,31 +2,49 @@ package com.xqmsg.sdk.v2;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import com.xqmsg.sdk.v2.algorithms.AESEncryption;
 import com.xqmsg.sdk.v2.algorithms.OTPv2Encryption;
 import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.caching.KeyCache;
 import com.xqmsg.sdk.v2.caching.SimpleXQCache;
 import com.xqmsg.sdk.v2.caching.XQCache;
+import com.xqmsg.sdk.v2.common.SingleFlight;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
+import com.xqmsg.sdk.v2.transport.HttpClientTransport;
+import com.xqmsg.sdk.v2.transport.RequestBody;
+import com.xqmsg.sdk.v2.transport.TransportResponse;
+import com.xqmsg.sdk.v2.transport.XQTransport;
 import com.xqmsg.sdk.v2.utils.Destination;
 import com.xqmsg.sdk.v2.utils.XQMsgJSONTypeAdapter;
 
-import javax.net.ssl.HttpsURLConnection;
 import java.io.*;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -39,6 +57,20 @@ public class XQSDK {
     public static final String APPLICATION_JSON = "application/json";
     public static final String TEXT_PLAIN_UTF_8 = "text/plain;charset=UTF-8";
 
+    public static final String POOLED_EXECUTOR = "pooled";
+    public static final String VIRTUAL_EXECUTOR = "virtual";
+
+    private static final Type JSON_MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    /**
+     * Gson instances are thread-safe, so a single one serves every request and response.
+     */
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(JSON_MAP_TYPE, new XQMsgJSONTypeAdapter())
+            .create();
+
+    private static final XQMsgJSONTypeAdapter JSON_ADAPTER = new XQMsgJSONTypeAdapter();
+
     public final String XQ_APPLICATION_KEY;
     public final String DASHBOARD_APPLICATION_KEY;
 
@@ -48,14 +80,35 @@ public class XQSDK {
     public URL KEY_SERVER_URL;
 
     private final HashMap<AlgorithmEnum, XQAlgorithm> ALGORITHMS;
+    private final List<String> PREFIXES;
 
     private final XQCache cache;
 
+    private final XQTransport transport;
+
+    private final SingleFlight<String, ServerResponse> singleFlight = new SingleFlight<>();
+
+    private final Optional<KeyCache> keyCache;
+
+    private final Optional<EntropyPool> entropyPool;
+
+    private final ExecutorService cpuExecutor;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService networkExecutor;
+
     public XQSDK() {
 
         Properties applicationProperties = getApplicationProperties();
 
+        cpuExecutor = createCpuExecutor(applicationProperties);
+        ioExecutor = createIoExecutor(applicationProperties);
+        networkExecutor = createNetworkExecutor(applicationProperties);
+
+        keyCache = createKeyCache(applicationProperties);
+        entropyPool = createEntropyPool(applicationProperties);
+
         String cachingMechanism = applicationProperties.getProperty("com.xq-msg.sdk.v2.cache-key");
+        String transportMechanism = applicationProperties.getProperty("com.xq-msg.sdk.v2.transport-key", HttpClientTransport.class.getName());
 
         try {
 
@@ -69,6 +122,8 @@ public class XQSDK {
                             .getDeclaredConstructor())
                     .newInstance();
 
+            transport = createTransport(transportMechanism);
+
         } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InstantiationException | InvocationTargetException | MalformedURLException e) {
             e.printStackTrace();
             throw new RuntimeException(String.format("Fatal Configuration Exception %s ", e.getMessage()), e);
@@ -78,8 +133,16 @@ public class XQSDK {
         DASHBOARD_APPLICATION_KEY = applicationProperties.getProperty("com.xq-msg.sdk.v2.dashboard-api-key");
 
         ALGORITHMS = new HashMap<>();
-        ALGORITHMS.put(AlgorithmEnum.AES, new AESEncryption());
-        ALGORITHMS.put(AlgorithmEnum.OTPv2, new OTPv2Encryption());
+        ALGORITHMS.put(AlgorithmEnum.AES, new AESEncryption(cpuExecutor, ioExecutor));
+        // size of the buffer OTPv2 streams files through, 64 KiB to 1 MiB,
+        // and the content size from which it splits them across the CPU executor ( negative: never );
+        // it keeps one direct buffer per I/O thread at most
+        int otpBufferSize = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.otp.buffer-size",
+                String.valueOf(OTPv2Encryption.DEFAULT_BUFFER_SIZE)));
+        long otpParallelThreshold = Long.parseLong(applicationProperties.getProperty("com.xq-msg.sdk.v2.otp.parallel-threshold",
+                String.valueOf(OTPv2Encryption.DEFAULT_PARALLEL_THRESHOLD)));
+        ALGORITHMS.put(AlgorithmEnum.OTPv2, new OTPv2Encryption(cpuExecutor, ioExecutor, otpBufferSize, otpParallelThreshold, ioThreads(applicationProperties)));
+        PREFIXES = ALGORITHMS.values().stream().map(XQAlgorithm::prefix).collect(Collectors.toList());
 
     }
 
@@ -93,133 +156,300 @@ public class XQSDK {
         assert baseUrl != null : "baseUrl cannot be null";
         assert callMethod != null : "method cannot be null";
 
-        if (maybePayload.isPresent() && List.of(CallMethod.Post, CallMethod.Patch, CallMethod.Options).contains(callMethod)) {
-            try {
-                return makeBodyRequest(baseUrl, callMethod, mayBeService, maybeDestination, maybeHeaderProperties, maybePayload);
-            } catch (IOException e) {
-                return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getLocalizedMessage());
-            }
-        } else {
-            try {
-                return makeParamRequest(baseUrl, callMethod, mayBeService, maybeDestination, maybeHeaderProperties, maybePayload);
-            } catch (IOException e) {
-                return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getLocalizedMessage());
-            }
+        try {
+            PreparedCall preparedCall = prepare(baseUrl, mayBeService, callMethod, maybeHeaderProperties, maybeDestination, maybePayload);
+            return readResponse(transport.send(preparedCall.method, preparedCall.url, preparedCall.headers, preparedCall.body));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ServerResponse(CallStatus.Error, Reasons.IOException, describe(e));
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #call}. No caller thread is parked while waiting on the network:
+     * the response body is decoded on the I/O executor as it streams in from the transport.
+     * Failures are reported the same way as in {@link #call}, as an {@link CallStatus#Error} response.
+     */
+    public CompletableFuture<ServerResponse> callAsync(URL baseUrl,
+                                                       Optional<String> mayBeService,
+                                                       CallMethod callMethod,
+                                                       Optional<Map<String, String>> maybeHeaderProperties,
+                                                       Optional<Destination> maybeDestination,
+                                                       Optional<Map<String, Object>> maybePayload) {
 
-    private ServerResponse makeBodyRequest(URL baseUrl, CallMethod callMethod, Optional<String> maybeService, Optional<Destination> maybeDestination, Optional<Map<String, String>> maybeHeaderProperties, Optional<Map<String, Object>> maybePayload) throws IOException {
+        assert baseUrl != null : "baseUrl cannot be null";
+        assert callMethod != null : "method cannot be null";
 
-        final String spec = String.format("%s%s", baseUrl, maybeService.map(service -> "/" + service).orElse(""));
-        final URL url = new URL(spec);
+        final PreparedCall preparedCall;
+        try {
+            preparedCall = prepare(baseUrl, mayBeService, callMethod, maybeHeaderProperties, maybeDestination, maybePayload);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getLocalizedMessage()));
+        }
 
-        final HttpsURLConnection httpsConnection = (HttpsURLConnection) url.openConnection();
+        return transport
+                .sendAsync(preparedCall.method, preparedCall.url, preparedCall.headers, preparedCall.body, ioExecutor)
+                .handleAsync((transportResponse, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                        return new ServerResponse(CallStatus.Error, Reasons.IOException, describe(cause));
+                    }
+                    try {
+                        return readResponse(transportResponse);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getLocalizedMessage());
+                    }
+                }, ioExecutor);
+    }
 
-        Destination destination = maybeDestination.orElse(Destination.XQ);
-        switch (destination) {
-            case XQ: {
-                httpsConnection.setRequestProperty(XQSDK.API_KEY, XQ_APPLICATION_KEY);
-                break;
-            }
-            case DASHBOARD: {
-                httpsConnection.setRequestProperty(XQSDK.API_KEY, DASHBOARD_APPLICATION_KEY);
-                break;
-            }
+    private static String describe(Throwable throwable) {
+        return throwable.getLocalizedMessage() != null ? throwable.getLocalizedMessage() : throwable.toString();
+    }
+
+    private PreparedCall prepare(URL baseUrl, Optional<String> maybeService, CallMethod callMethod, Optional<Map<String, String>> maybeHeaderProperties, Optional<Destination> maybeDestination, Optional<Map<String, Object>> maybePayload) throws IOException {
+        if (maybePayload.isPresent() && List.of(CallMethod.Post, CallMethod.Patch, CallMethod.Options).contains(callMethod)) {
+            return prepareBodyRequest(baseUrl, callMethod, maybeService, maybeDestination, maybeHeaderProperties, maybePayload);
+        } else {
+            return prepareParamRequest(baseUrl, callMethod, maybeService, maybeDestination, maybeHeaderProperties, maybePayload);
         }
+    }
+
+    private PreparedCall prepareBodyRequest(URL baseUrl, CallMethod callMethod, Optional<String> maybeService, Optional<Destination> maybeDestination, Optional<Map<String, String>> maybeHeaderProperties, Optional<Map<String, Object>> maybePayload) throws IOException {
+
+        final String spec = String.format("%s%s", baseUrl, maybeService.map(service -> "/" + service).orElse(""));
+        final URL url = new URL(spec);
 
+        final String method;
         switch (callMethod) {
             case Patch:
             case Post: {
-                httpsConnection.setRequestMethod(CallMethod.Post.name().toUpperCase());
+                method = CallMethod.Post.name().toUpperCase();
                 break;
             }
             default: {
-                httpsConnection.setRequestMethod(callMethod.name().toUpperCase());
+                method = callMethod.name().toUpperCase();
                 break;
             }
         }
 
-        httpsConnection.setDoOutput(true);
+        final Map<String, String> headers = buildHeaders(maybeDestination, maybeHeaderProperties);
+        final RequestBody body = serializePayload(maybePayload.orElseGet(Collections::emptyMap), headers);
 
-        try {
+        return new PreparedCall(method, url, headers, Optional.of(body));
+    }
 
-            maybeHeaderProperties.ifPresentOrElse(
-                    (headerProperties) -> {
-                        headerProperties.forEach(httpsConnection::setRequestProperty);
-                        if (!headerProperties.containsKey(XQSDK.CONTENT_TYPE)) {
-                            httpsConnection.setRequestProperty(XQSDK.CONTENT_TYPE, APPLICATION_JSON);
-                        }
-                    },
-                    () -> {
-                        httpsConnection.setRequestProperty(XQSDK.CONTENT_TYPE, APPLICATION_JSON);
-                    }
-            );
 
-            writeToOutputStream(maybePayload.orElseGet(Collections::emptyMap), httpsConnection);
+    private PreparedCall prepareParamRequest(URL baseUrl, CallMethod callMethod, Optional<String> maybeService, Optional<Destination> maybeDestination, Optional<Map<String, String>> maybeHeaderProperties, Optional<Map<String, Object>> maybePayload) throws IOException {
+
+        String spec = String.format("%s%s%s",
+                baseUrl, maybeService.map(service -> "/" + service).orElse(""),
+                maybePayload.map(payload -> "?" + buildQueryParams(payload)).orElse(""));
 
-            Map<String, Object> response = receiveData(httpsConnection);
+        URL url = new URL(spec);
 
-            return convertToServerResponse(response);
+        final Map<String, String> headers = buildHeaders(maybeDestination, maybeHeaderProperties);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
-        } finally {
-            httpsConnection.disconnect();
+        return new PreparedCall(callMethod.name().toUpperCase(), url, headers, Optional.empty());
+    }
+
+    private ServerResponse readResponse(TransportResponse transportResponse) throws IOException {
+        try (transportResponse) {
+
+            Map<String, Object> response = receiveData(transportResponse);
+
+            return convertToServerResponse(response);
         }
     }
 
+    private Map<String, String> buildHeaders(Optional<Destination> maybeDestination, Optional<Map<String, String>> maybeHeaderProperties) {
 
-    private ServerResponse makeParamRequest(URL baseUrl, CallMethod callMethod, Optional<String> maybeService, Optional<Destination> maybeDestination, Optional<Map<String, String>> maybeHeaderProperties, Optional<Map<String, Object>> maybePayload) throws IOException {
+        final Map<String, String> headers = new LinkedHashMap<>();
 
-        String spec = String.format("%s%s%s",
-                baseUrl, maybeService.map(service -> "/" + service).orElse(""),
-                maybePayload.map(payload -> "?" + buildQueryParams(payload)).orElse(""));
+        Destination destination = maybeDestination.orElse(Destination.XQ);
+        switch (destination) {
+            case XQ: {
+                headers.put(XQSDK.API_KEY, XQ_APPLICATION_KEY);
+                break;
+            }
+            case DASHBOARD: {
+                headers.put(XQSDK.API_KEY, DASHBOARD_APPLICATION_KEY);
+                break;
+            }
+        }
 
-        URL url = new URL(spec);
+        maybeHeaderProperties.ifPresent(headers::putAll);
+        headers.putIfAbsent(XQSDK.CONTENT_TYPE, APPLICATION_JSON);
 
-        HttpsURLConnection httpsConnection = (HttpsURLConnection) url.openConnection();
+        return headers;
+    }
 
+
+    /**
+     * Transports that accept an {@link Executor} are given the network executor for their own non-blocking work,
+     * any other transport is created with its no-arg constructor.<br>
+     * The blocking parts of a call ( writing the request body, reading the response ) run on the I/O executor, which
+     * {@link #callAsync} hands to {@link XQTransport#sendAsync}. An I/O thread may wait for the client to take the next
+     * chunk of a body, but the client never needs an I/O thread to do so; and no task on the I/O executor ever blocks on a future.
+     * So however many large bodies are in flight at once, neither pool can run out of threads waiting for the other.
+     */
+    private XQTransport createTransport(String transportMechanism) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        Class<? extends XQTransport> transportClass = Class.forName(transportMechanism).asSubclass(XQTransport.class);
         try {
+            return transportClass.getDeclaredConstructor(Executor.class).newInstance(networkExecutor);
+        } catch (NoSuchMethodException e) {
+            return transportClass.getDeclaredConstructor().newInstance();
+        }
+    }
 
-            Destination destination = maybeDestination.orElse(Destination.XQ);
-            switch (destination) {
-                case XQ: {
-                    httpsConnection.setRequestProperty(XQSDK.API_KEY, XQ_APPLICATION_KEY);
-                    break;
-                }
-                case DASHBOARD: {
-                    httpsConnection.setRequestProperty(XQSDK.API_KEY, DASHBOARD_APPLICATION_KEY);
-                    break;
-                }
+    /**
+     * A bounded pool for CPU-bound work (ciphers, key expansion).<br>
+     * Its size is read from `com.xq-msg.sdk.v2.cpu-threads` and defaults to the number of available processors.
+     */
+    private ExecutorService createCpuExecutor(Properties applicationProperties) {
+        int cpuThreads = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.cpu-threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        return new ForkJoinPool(Math.max(1, cpuThreads), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("xq-cpu-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+    }
+
+    /**
+     * The pool used for network and file I/O.<br>
+     * `com.xq-msg.sdk.v2.io-executor=pooled` ( default ) creates a fixed pool of `com.xq-msg.sdk.v2.io-threads` daemon threads,
+     * `com.xq-msg.sdk.v2.io-executor=virtual` starts a virtual thread per task on runtimes that support it.
+     */
+    private ExecutorService createIoExecutor(Properties applicationProperties) {
+        String mode = applicationProperties.getProperty("com.xq-msg.sdk.v2.io-executor", POOLED_EXECUTOR);
+        if (VIRTUAL_EXECUTOR.equalsIgnoreCase(mode)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                logger.warning(String.format("Virtual threads are not available on this runtime ( %s ), falling back to a pooled I/O executor.", e));
             }
-            httpsConnection.setRequestMethod(callMethod.name().toUpperCase());
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(ioThreads(applicationProperties), runnable -> {
+            Thread thread = new Thread(runnable, "xq-io-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-            maybeHeaderProperties.ifPresentOrElse(
-                    (headerProperties) -> {
-                        headerProperties.forEach(httpsConnection::setRequestProperty);
-                        if (!headerProperties.containsKey(XQSDK.CONTENT_TYPE)) {
-                            httpsConnection.setRequestProperty(XQSDK.CONTENT_TYPE, APPLICATION_JSON);
-                        }
-                    },
-                    () -> {
-                        httpsConnection.setRequestProperty(XQSDK.CONTENT_TYPE, APPLICATION_JSON);
-                    }
-            );
+    /**
+     * The I/O parallelism: the size of the pooled I/O executor, `com.xq-msg.sdk.v2.io-threads` ( default twice the CPUs, at least 4 ).
+     */
+    private static int ioThreads(Properties applicationProperties) {
+        return Math.max(1, Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.io-threads",
+                String.valueOf(Math.max(4, Runtime.getRuntime().availableProcessors() * 2)))));
+    }
 
-            Map<String, Object> response = receiveData(httpsConnection);
+    /**
+     * The pool on which the transport's client does its own, non-blocking work ( connecting, handing out response data,
+     * asking for the next chunk of a request body ), kept apart from the I/O executor whose threads wait on that client.<br>
+     * `com.xq-msg.sdk.v2.network-threads` ( default 2 ) sets its size; with `com.xq-msg.sdk.v2.io-executor=virtual`
+     * it starts a virtual thread per task instead.
+     */
+    private ExecutorService createNetworkExecutor(Properties applicationProperties) {
+        String mode = applicationProperties.getProperty("com.xq-msg.sdk.v2.io-executor", POOLED_EXECUTOR);
+        if (VIRTUAL_EXECUTOR.equalsIgnoreCase(mode)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                logger.warning(String.format("Virtual threads are not available on this runtime ( %s ), falling back to a pooled network executor.", e));
+            }
+        }
+        int networkThreads = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.network-threads", "2"));
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, networkThreads), runnable -> {
+            Thread thread = new Thread(runnable, "xq-net-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-            return convertToServerResponse(response);
+    /**
+     * Shared by the modules whose identical concurrent calls ( e.g. `FetchKey` for the same locator and authorization token )
+     * can be served by a single request.
+     *
+     * @return the single-flight layer of this SDK instance.
+     */
+    public SingleFlight<String, ServerResponse> getSingleFlight() {
+        return singleFlight;
+    }
 
-        } catch (Exception e) {
-          e.printStackTrace();
-          throw e;
-        } finally {
-          httpsConnection.disconnect();
+    /**
+     * The key cache is disabled unless `com.xq-msg.sdk.v2.key-cache.enabled=true`.<br>
+     * `com.xq-msg.sdk.v2.key-cache.max-entries` ( default 1000 ) bounds its size and
+     * `com.xq-msg.sdk.v2.key-cache.ttl-seconds` ( default 300 ) the time a key is kept.
+     */
+    private Optional<KeyCache> createKeyCache(Properties applicationProperties) {
+        if (!Boolean.parseBoolean(applicationProperties.getProperty("com.xq-msg.sdk.v2.key-cache.enabled", "false"))) {
+            return Optional.empty();
         }
+        int maxEntries = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.key-cache.max-entries", "1000"));
+        long ttlSeconds = Long.parseLong(applicationProperties.getProperty("com.xq-msg.sdk.v2.key-cache.ttl-seconds", "300"));
+        return Optional.of(new KeyCache(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds)));
     }
 
+    /**
+     * The entropy pool is enabled unless `com.xq-msg.sdk.v2.entropy-pool.enabled=false`.<br>
+     * `com.xq-msg.sdk.v2.entropy-pool.low-watermark` ( default 8 ) and `com.xq-msg.sdk.v2.entropy-pool.high-watermark` ( default 32 )
+     * are counted in 256 bit slices, `com.xq-msg.sdk.v2.entropy-pool.block-bits` ( default 4096 ) is the size of a single refill call.<br>
+     * After a failed refill the next one waits `com.xq-msg.sdk.v2.entropy-pool.backoff-millis` ( default 1000 ), doubling with every
+     * further failure up to `com.xq-msg.sdk.v2.entropy-pool.max-backoff-millis` ( default 60000 ).
+     */
+    private Optional<EntropyPool> createEntropyPool(Properties applicationProperties) {
+        if (!Boolean.parseBoolean(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.enabled", "true"))) {
+            return Optional.empty();
+        }
+        int lowWatermark = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.low-watermark", "8"));
+        int highWatermark = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.high-watermark", "32"));
+        int blockBits = Integer.parseInt(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.block-bits", "4096"));
+        long minBackoffMillis = Long.parseLong(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.backoff-millis",
+                String.valueOf(EntropyPool.DEFAULT_MIN_BACKOFF_MILLIS)));
+        long maxBackoffMillis = Long.parseLong(applicationProperties.getProperty("com.xq-msg.sdk.v2.entropy-pool.max-backoff-millis",
+                String.valueOf(EntropyPool.DEFAULT_MAX_BACKOFF_MILLIS)));
+        return Optional.of(new EntropyPool(this, lowWatermark, highWatermark, blockBits, minBackoffMillis, maxBackoffMillis));
+    }
+
+    /**
+     * @return the pool of prefetched quantum entropy used by `Encrypt` and `FileEncrypt`, if it is enabled.
+     */
+    public Optional<EntropyPool> getEntropyPool() {
+        return entropyPool;
+    }
+
+    /**
+     * @return the in-memory cache of retrieved keys, if it is enabled.
+     */
+    public Optional<KeyCache> getKeyCache() {
+        return keyCache;
+    }
+
+    /**
+     * @return the number of calls that shared an already running request instead of going to the server.
+     */
+    public long getCoalescedCallCount() {
+        return singleFlight.coalescedCount();
+    }
+
+    /**
+     * @return the executor used for CPU-bound work such as encryption and decryption.
+     */
+    public Executor getCpuExecutor() {
+        return cpuExecutor;
+    }
+
+    /**
+     * @return the executor used for network and file I/O. Tasks run on it must never block on a future of the SDK,
+     * since that future may need one of its threads to complete.
+     */
+    public Executor getIoExecutor() {
+        return ioExecutor;
+    }
 
     public XQAlgorithm getAlgorithm(AlgorithmEnum algorithm) {
         if (!ALGORITHMS.containsKey(algorithm)) return null;
@@ -290,38 +520,115 @@ public class XQSDK {
                 .orElse("");
     }
 
-    private void writeToOutputStream(Map payload, HttpsURLConnection httpsConnection) throws IOException {
-        String dataString = null;
-        if (APPLICATION_JSON.equals(httpsConnection.getRequestProperty(XQSDK.CONTENT_TYPE))) {
-            dataString = new Gson().toJson(payload);
+    /**
+     * JSON payloads are serialized straight into the request stream;
+     * any other content type ( e.g. the `text/plain` packet sent by `ValidatePacket` ) is sent as the UTF-8 bytes of its `data` entry.
+     */
+    private RequestBody serializePayload(Map<String, Object> payload, Map<String, String> headers) {
+        if (APPLICATION_JSON.equals(headers.get(XQSDK.CONTENT_TYPE))) {
+            return new JsonRequestBody(payload);
         } else {
-            dataString = (String) payload.get(ServerResponse.DATA);
+            return RequestBody.of(((String) payload.get(ServerResponse.DATA)).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Decodes the response body straight from the stream.<br>
+     * A JSON object is first only scanned, its values skipped and its raw text kept, until a top-level `status` shows up.
+     * An object without one ( e.g. a dashboard listing ) thus becomes the `data` entry of the response as the text the server sent,
+     * the same as plain-text bodies ( keys, locator tokens ), without ever being built into maps.
+     * Once `status` has been read, the object is read from its start into maps by the shared {@link XQMsgJSONTypeAdapter},
+     * the kept text first and then the rest of the stream.
+     */
+    Map<String, Object> receiveData(TransportResponse transportResponse) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(transportResponse.body(), StandardCharsets.UTF_8));
+
+        if (!transportResponse.isSuccess()) {
+            throw new IOException(readText(reader));
+        }
+
+        int first = peekNonWhitespace(reader);
+
+        if (first == -1) {
+            return okResponse("No Content");
         }
-        try (OutputStream os = httpsConnection.getOutputStream()) {
-            byte[] input = dataString.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
+
+        if (first != '{') {
+            return okResponse(readText(reader));
+        }
+
+        RecordingReader recordingReader = new RecordingReader(reader);
+        try {
+            JsonReader scanner = lenientReader(recordingReader);
+            scanner.beginObject();
+            while (scanner.hasNext()) {
+                if ("status".equals(scanner.nextName())) {
+                    return readObject(lenientReader(recordingReader.resume()));
+                }
+                scanner.skipValue();
+            }
+            return okResponse(readText(recordingReader.replay()));
+        } catch (IOException | IllegalStateException | JsonParseException e) {
+            if (recordingReader.isRecording()) {
+                return okResponse(readText(recordingReader.replay()));
+            }
+            logger.warning(String.format("Unable to parse the response: %s", e.getMessage()));
+            return null;
         }
     }
 
-    private Map<String, Object> receiveData(HttpsURLConnection httpConnection) throws IOException {
+    private static JsonReader lenientReader(Reader reader) {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        return jsonReader;
+    }
+
+    private static Map<String, Object> readObject(JsonReader jsonReader) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            response.put(jsonReader.nextName(), JSON_ADAPTER.read(jsonReader));
+        }
+        jsonReader.endObject();
+        return response;
+    }
 
-        BufferedInputStream is = null;
+    private static Map<String, Object> okResponse(String data) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put(ServerResponse.DATA, data);
+        return response;
+    }
 
-        if (httpConnection.getResponseCode() < 200 | httpConnection.getResponseCode() > 299) {
-            is = new BufferedInputStream(httpConnection.getErrorStream());
-        } else {
-            is = new BufferedInputStream(httpConnection.getInputStream());
+    /**
+     * Skips leading whitespace and returns the next character without consuming it, or -1 at the end of the stream.
+     */
+    private static int peekNonWhitespace(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            reader.mark(1);
+            c = reader.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        if (c != -1) {
+            reader.reset();
         }
-        List<String> prefixes = ALGORITHMS.values().stream().map(a -> a.prefix()).collect(Collectors.toList());
-        StringBuilder responseBuilder = null;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-            responseBuilder = new StringBuilder();
-            String responseLine = null;
+        return c;
+    }
+
+    /**
+     * Reads a plain-text body, trimming every line.<br>
+     * Keys returned by the server ( recognized by their algorithm prefix ) keep their line breaks.
+     */
+    private String readText(BufferedReader reader) {
+        StringBuilder responseBuilder = new StringBuilder();
+        try (reader) {
+            String responseLine;
             int l = 0;
             boolean appendNewLine = false;
-            while ((responseLine = br.readLine()) != null) {
+            while ((responseLine = reader.readLine()) != null) {
                 responseBuilder.append(responseLine.trim());
-                if (l == 0 && prefixes.contains(responseLine.substring(0, 2))) {
+                if (l == 0 && responseLine.length() >= 2 && PREFIXES.contains(responseLine.substring(0, 2))) {
                     appendNewLine = true;
                 }
                 if (appendNewLine) {
@@ -332,43 +639,9 @@ public class XQSDK {
         } catch (IOException e) {
             e.printStackTrace();
         }
-
-        String responseString = responseBuilder.toString().trim();
-
-        if (httpConnection.getResponseCode() < 200 | httpConnection.getResponseCode() > 299) {
-            throw new IOException(responseString);
-        } else {
-            switch (responseString) {
-                case "":
-                    responseString = "{status:\"OK\", data:\"No Content\"}";
-                    break;
-                default: {
-                    if (!responseString.contains("status")) {
-                        responseString = String.format("{status:\"OK\", data:\"%s\"}", escapeDoubleQuotes(responseString));
-                    }
-                }
-                break;
-            }
-        }
-
-        GsonBuilder gsonBuilder = new GsonBuilder();
-
-        gsonBuilder.registerTypeAdapter(new TypeToken<Map<String, Object>>() {}.getType(), new XQMsgJSONTypeAdapter());
-
-        Gson gson = gsonBuilder.create();
-
-        Map<String, Object> jsonOut = null;
-        try {
-            jsonOut = gson.fromJson(responseString, new TypeToken<Map<String, Object>>() {
-            }.getType());
-        }catch (JsonSyntaxException jse){
-            jse.printStackTrace();
-
-        }
-        return jsonOut;
-
-
+        return responseBuilder.toString().trim();
     }
+
     public static String escapeDoubleQuotes(String s) {
         StringBuilder out = new StringBuilder(Math.max(16, s.length()));
         for (int i = 0; i < s.length(); i++) {
@@ -429,4 +702,112 @@ public class XQSDK {
         }
     }
 
+    /**
+     * Writes the payload through the shared {@link #GSON} instance as it is being sent, without building an intermediate string.
+     */
+    private static class JsonRequestBody implements RequestBody {
+        final Map<String, Object> payload;
+
+        JsonRequestBody(Map<String, Object> payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            GSON.toJson(payload, payload.getClass(), GSON.newJsonWriter(writer));
+            writer.flush();
+        }
+    }
+
+    /**
+     * Keeps a copy of everything read through it until it is resumed or replayed,
+     * so that a body can be scanned first and then either read again from its start or returned as the text sent.
+     */
+    private static class RecordingReader extends FilterReader {
+        private StringBuilder recorded = new StringBuilder();
+        private Reader pending;
+
+        RecordingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pending != null) {
+                int c = pending.read();
+                if (c != -1) {
+                    return c;
+                }
+                pending = null;
+            }
+            int c = super.read();
+            if (c != -1 && recorded != null) {
+                recorded.append((char) c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (pending != null) {
+                int read = pending.read(cbuf, off, len);
+                if (read != -1) {
+                    return read;
+                }
+                pending = null;
+            }
+            int read = super.read(cbuf, off, len);
+            if (read > 0 && recorded != null) {
+                recorded.append(cbuf, off, read);
+            }
+            return read;
+        }
+
+        boolean isRecording() {
+            return recorded != null;
+        }
+
+        /**
+         * Stops recording.
+         *
+         * @return this reader, starting over with the recorded text and then going on with the rest of the stream.
+         */
+        Reader resume() {
+            pending = new StringReader(recorded.toString());
+            recorded = null;
+            return this;
+        }
+
+        /**
+         * @return a reader over the recorded text followed by the rest of the stream.
+         */
+        BufferedReader replay() throws IOException {
+            char[] buffer = new char[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                recorded.append(buffer, 0, read);
+            }
+            return new BufferedReader(new StringReader(recorded.toString()));
+        }
+    }
+
+    private static class PreparedCall {
+        final String method;
+        final URL url;
+        final Map<String, String> headers;
+        final Optional<RequestBody> body;
+
+        PreparedCall(String method, URL url, Map<String, String> headers, Optional<RequestBody> body) {
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
 }
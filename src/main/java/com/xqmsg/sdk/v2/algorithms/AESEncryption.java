@@ -6,21 +6,38 @@ import com.xqmsg.sdk.v2.ServerResponse;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -36,6 +53,55 @@ public class AESEncryption implements XQAlgorithm {
   public static final String prefix = ".A";
   public static final String name = "Advanced Encryption Standard";
 
+  private static final String TRANSFORMATION = "AES/CBC/PKCS7Padding";
+
+  /**
+   * The chunk size used when streaming files through the cipher.
+   */
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Instantiating a {@link BouncyCastleProvider} registers all of its services,
+   * so a single instance is shared by every cipher this class creates.
+   */
+  private static final Provider PROVIDER = new BouncyCastleProvider();
+
+  /**
+   * {@link Cipher} and {@link MessageDigest} are not thread-safe but can be re-initialized,
+   * so each thread keeps one of each and reuses it for every message.
+   */
+  private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+    try {
+      return Cipher.getInstance(TRANSFORMATION, PROVIDER);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private final Executor cpuExecutor;
+  private final Executor ioExecutor;
+
+  public AESEncryption() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param cpuExecutor runs the in-memory ( text ) encryption and decryption.
+   * @param ioExecutor runs the file encryption and decryption, which block on disk ( never on key retrieval, which is a chained stage ).
+   */
+  public AESEncryption(Executor cpuExecutor, Executor ioExecutor) {
+    this.cpuExecutor = cpuExecutor;
+    this.ioExecutor = ioExecutor;
+  }
+
   @Override
   public String name() {
     return name;
@@ -57,7 +123,8 @@ public class AESEncryption implements XQAlgorithm {
     byte[] derivedBytes = new byte[targetKeySize * 4];
     int numberOfDerivedWords = 0;
     byte[] block = null;
-    MessageDigest hasher = MessageDigest.getInstance(hashAlgorithm);
+    MessageDigest hasher = "MD5".equals(hashAlgorithm) ? MD5.get() : MessageDigest.getInstance(hashAlgorithm);
+    hasher.reset();
     while (numberOfDerivedWords < targetKeySize) {
       if (block != null) {
         hasher.update(block);
@@ -97,21 +164,86 @@ public class AESEncryption implements XQAlgorithm {
   private final int keySize = 256;
   private final int ivSize = 128;
 
-  public byte[] decryptImmediate(String text, String secretKey) {
+  /**
+   * The length of the `Salted__` marker followed by the 8 byte salt.
+   */
+  private static final int SALT_HEADER_LENGTH = 16;
 
-    try {
+  private static final byte[] SALT_TEXT_BYTES = new byte[]{0x53, 0x61, 0x6c, 0x74, 0x65, 0x64, 0x5f, 0x5f};//"Salted__".getBytes();
 
-      final byte[] ctBytes = Base64.getMimeDecoder().decode(text.getBytes(StandardCharsets.UTF_8));
-      final byte[] saltBytes = Arrays.copyOfRange(ctBytes, 8, 16);
-      final byte[] ciphertextBytes = Arrays.copyOfRange(ctBytes, 16, ctBytes.length);
+  /**
+   * Writes `Salted__`, the salt and the ciphertext: the same bytes the text variant base64-encodes.
+   */
+  @Override
+  public int encrypt(ByteBuffer src, ByteBuffer dst, String secretKey) throws GeneralSecurityException {
+
+    int required = maxEncryptedLength(src.remaining());
+    if (dst.remaining() < required) {
+      throw new ShortBufferException(String.format("Output buffer too small: %d bytes required, %d available.", required, dst.remaining()));
+    }
+
+    byte[] saltBytes = UUID.randomUUID().toString().substring(0, 8).getBytes();
+    byte[] key = new byte[keySize / 8];
+    byte[] iv = new byte[ivSize / 8];
+    evpKDF(secretKey.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, key, iv);
+
+    Cipher cipher = CIPHER.get();
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+
+    dst.put(SALT_TEXT_BYTES);
+    dst.put(saltBytes);
+    return SALT_HEADER_LENGTH + cipher.doFinal(src, dst);
+  }
+
+  @Override
+  public int decrypt(ByteBuffer src, ByteBuffer dst, String secretKey) throws GeneralSecurityException {
+
+    if (src.remaining() < SALT_HEADER_LENGTH) {
+      throw new IllegalBlockSizeException("Encrypted data is shorter than its salt header.");
+    }
+
+    final int srcPosition = src.position();
+    final int dstPosition = dst.position();
+
+    try {
+      final byte[] saltBytes = new byte[8];
+      src.position(srcPosition + SALT_TEXT_BYTES.length);
+      src.get(saltBytes);
 
       byte[] key = new byte[keySize / 8];
       byte[] iv = new byte[ivSize / 8];
       evpKDF(secretKey.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, key, iv);
 
-      Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", new BouncyCastleProvider());
+      Cipher cipher = CIPHER.get();
       cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
-      return cipher.doFinal(ciphertextBytes);
+      return cipher.doFinal(src, dst);
+
+    } catch (GeneralSecurityException e) {
+      src.position(srcPosition);
+      dst.position(dstPosition);
+      throw e;
+    }
+  }
+
+  @Override
+  public int maxEncryptedLength(int plaintextLength) {
+    // PKCS7 always adds between 1 and 16 bytes of padding
+    return SALT_HEADER_LENGTH + (plaintextLength / 16 + 1) * 16;
+  }
+
+  @Override
+  public int maxDecryptedLength(int ciphertextLength) {
+    return Math.max(0, ciphertextLength - SALT_HEADER_LENGTH);
+  }
+
+  public byte[] decryptImmediate(String text, String secretKey) {
+
+    try {
+
+      final byte[] ctBytes = Base64.getMimeDecoder().decode(text.getBytes(StandardCharsets.UTF_8));
+      final ByteBuffer plaintext = ByteBuffer.allocate(maxDecryptedLength(ctBytes.length));
+      final int length = decrypt(ByteBuffer.wrap(ctBytes), plaintext, secretKey);
+      return Arrays.copyOf(plaintext.array(), length);
 
     } catch (Exception e) {
       String errorMessage = e.getMessage();
@@ -127,7 +259,7 @@ public class AESEncryption implements XQAlgorithm {
     return CompletableFuture.supplyAsync(() -> {
       return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,  new String(encryptImmediate(text, key), StandardCharsets.UTF_8)));
 
-    }).exceptionally((e) -> {
+    }, cpuExecutor).exceptionally((e) -> {
       e.printStackTrace();
       return null;
     });
@@ -137,20 +269,9 @@ public class AESEncryption implements XQAlgorithm {
 
     try {
 
-      byte[] saltBytes = UUID.randomUUID().toString().substring(0, 8).getBytes();
-      byte[] saltTextBytes = new byte[]{0x53, 0x61, 0x6c, 0x74, 0x65, 0x64, 0x5f, 0x5f};//"Salted__".getBytes();
-      byte[] key = new byte[keySize / 8];
-      byte[] iv = new byte[ivSize / 8];
-      evpKDF(secretKey.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, key, iv);
-
-      Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", new BouncyCastleProvider());
-      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
-      byte[] encryptedBytes = cipher.doFinal(text.getBytes());
-
-      byte[] payload = new byte[encryptedBytes.length + saltTextBytes.length + saltBytes.length];
-      System.arraycopy(saltTextBytes, 0, payload, 0, saltTextBytes.length);
-      System.arraycopy(saltBytes, 0, payload, saltTextBytes.length, saltBytes.length);
-      System.arraycopy(encryptedBytes, 0, payload, saltTextBytes.length + saltBytes.length, encryptedBytes.length);
+      byte[] plaintext = text.getBytes();
+      byte[] payload = new byte[maxEncryptedLength(plaintext.length)];
+      encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(payload), secretKey);
 
       final int NO_WRAP = 2;
       // return Base64.getEncoder().encode(payload);
@@ -169,7 +290,7 @@ public class AESEncryption implements XQAlgorithm {
       return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,  new String(decryptImmediate(text, key), StandardCharsets.UTF_8)));
 
 
-    });
+    }, cpuExecutor);
   }
 
   @Override
@@ -186,7 +307,7 @@ public class AESEncryption implements XQAlgorithm {
         return new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message);
       }
 
-      try (FileInputStream instream = new FileInputStream(sourceFilePath.toFile())) {
+      try {
 
         byte[] locatorTokenLengthBytes = ByteBuffer.allocate(4).putInt(locatorToken.length()).array();
         byte[] locatorTokenBytes = locatorToken.getBytes();
@@ -197,29 +318,34 @@ public class AESEncryption implements XQAlgorithm {
 
         evpKDF(key.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, k, iv);
 
-        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", new BouncyCastleProvider());
+        Cipher cipher = CIPHER.get();
         cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k, "AES"), new IvParameterSpec(iv));
 
-        byte[] buffer = new byte[(int) sourceFilePath.toFile().length()];
-        instream.read(buffer);
-
-        byte[] encryptedBytes = cipher.doFinal(buffer);
-
-
-        byte[] payload = new byte[locatorTokenBytes.length + locatorTokenLengthBytes.length + saltTextBytes.length + saltBytes.length + encryptedBytes.length];
-        System.arraycopy(locatorTokenLengthBytes, 0, payload, 0, locatorTokenLengthBytes.length);
-        System.arraycopy(locatorTokenBytes, 0, payload, locatorTokenLengthBytes.length, locatorTokenBytes.length);
-        System.arraycopy(saltTextBytes, 0, payload, locatorTokenLengthBytes.length+locatorTokenBytes.length, saltTextBytes.length);
-        System.arraycopy(saltBytes, 0, payload, locatorTokenLengthBytes.length+locatorTokenBytes.length+saltTextBytes.length, saltBytes.length);
-        System.arraycopy(encryptedBytes, 0, payload, locatorTokenLengthBytes.length+locatorTokenBytes.length+saltTextBytes.length+saltBytes.length, encryptedBytes.length);
-
         //file format: locatorTokenLengthBytes + locatorTokenBytes + saltTextBytes + saltBytes + encryptedBytes
         File encryptedFile = targetFilePath.toFile();
 
         if (encryptedFile.createNewFile()) {
 
-          try (FileOutputStream outstream = new FileOutputStream(encryptedFile)) {
-            outstream.write(payload);
+          // the header is written first and the content is then streamed through the cipher,
+          // so memory use does not depend on the size of the file.
+          try (FileInputStream instream = new FileInputStream(sourceFilePath.toFile());
+               FileOutputStream outstream = new FileOutputStream(encryptedFile)) {
+
+            outstream.write(locatorTokenLengthBytes);
+            outstream.write(locatorTokenBytes);
+            outstream.write(saltTextBytes);
+            outstream.write(saltBytes);
+
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            byte[] encryptedBuffer = new byte[cipher.getOutputSize(STREAM_BUFFER_SIZE)];
+            int read;
+            while ((read = instream.read(buffer)) != -1) {
+              int encrypted = cipher.update(buffer, 0, read, encryptedBuffer);
+              outstream.write(encryptedBuffer, 0, encrypted);
+            }
+            int encrypted = cipher.doFinal(encryptedBuffer, 0);
+            outstream.write(encryptedBuffer, 0, encrypted);
+
             return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, encryptedFile.toPath()));
           }
 
@@ -235,85 +361,183 @@ public class AESEncryption implements XQAlgorithm {
         return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, errorMessage);
       }
 
-    });
+    }, ioExecutor);
   }
 
   @Override
   public CompletableFuture<ServerResponse> decrypt(Path sourceFilePath, Path targetFilePath, Function<String, CompletableFuture<String>> retrieveKeyFunction) {
+    // the header is parsed, the key retrieved and the content decrypted as separate stages,
+    // so that no thread is held while the key is being retrieved.
     return CompletableFuture.supplyAsync(() -> {
-      try {
-        if (sourceFilePath.toFile().exists()) {
-          if (targetFilePath.toFile().exists()) {
-            targetFilePath.toFile().delete();
-          }
-        } else {
-          String message = "Source file does not exist.";
-          logger.warning(message);
-          return new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message);
+      if (sourceFilePath.toFile().exists()) {
+        if (targetFilePath.toFile().exists()) {
+          targetFilePath.toFile().delete();
         }
+      } else {
+        String message = "Source file does not exist.";
+        logger.warning(message);
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message));
+      }
+
+      // only the header is read here; the file is opened again once the key is known.
+      try (FileChannel inChannel = FileChannel.open(sourceFilePath, StandardOpenOption.READ)) {
+
+        // the header is read straight from the channel, leaving it positioned at the content
+        DataInputStream instream = new DataInputStream(Channels.newInputStream(inChannel));
+
+        final String locatorToken = readLocatorToken(instream);
+        final byte[] saltTextBytes = new byte[8];
+        instream.readFully(saltTextBytes);
+        final byte[] saltBytes = new byte[8];
+        instream.readFully(saltBytes);
+        final long contentOffset = inChannel.position();
+
+        return retrieveKeyFunction
+                .apply(locatorToken)
+                .thenApplyAsync((key) -> decrypt(sourceFilePath, contentOffset, saltBytes, targetFilePath, key), ioExecutor)
+                .exceptionally((e) -> {
+                  Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                  String message = String.format("Unable to retrieve a valid key: %s", cause.getMessage());
+                  logger.warning(message);
+                  return new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, message);
+                });
+
+      } catch (IOException e) {
+        // a truncated or corrupt header
+        String errorMessage = e.getMessage();
+        logger.warning(errorMessage);
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, errorMessage));
+      }
+
+    }, ioExecutor)
+            .thenCompose(Function.identity())
+            .exceptionally((e) -> {
+              Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+              logger.warning(cause.getMessage());
+              return new ServerResponse(CallStatus.Error, Reasons.InternalException, cause.getMessage());
+            });
+  }
+
+  /**
+   * Streams the ciphertext, which starts at `contentOffset`, through the cipher into the target,
+   * so memory use does not depend on the size of the file.
+   */
+  private ServerResponse decrypt(Path sourceFilePath, long contentOffset, byte[] saltBytes, Path targetFilePath, String key) {
+
+    if (key == null) {
+      String message = "Unable to retrieve a valid key.";
+      return new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, message);
+    }
 
-        try (FileInputStream instream = new FileInputStream(sourceFilePath.toFile())) {
+    try (FileChannel inChannel = FileChannel.open(sourceFilePath, StandardOpenOption.READ)) {
 
-          byte[] buffer = new byte[(int) sourceFilePath.toFile().length()];
+      byte[] k = new byte[keySize / 8];
+      byte[] iv = new byte[ivSize / 8];
+
+      evpKDF(key.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, k, iv);
+
+      Cipher cipher = CIPHER.get();
+      cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(k, "AES"), new IvParameterSpec(iv));
+
+      File decryptedFile = targetFilePath.toFile();
+
+      if (decryptedFile.createNewFile()) {
+        InputStream instream = Channels.newInputStream(inChannel.position(contentOffset));
+        try (FileOutputStream os = new FileOutputStream(decryptedFile)) {
+          byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+          byte[] decryptedBuffer = new byte[cipher.getOutputSize(STREAM_BUFFER_SIZE)];
+          int read;
+          while ((read = instream.read(buffer)) != -1) {
+            int decrypted = cipher.update(buffer, 0, read, decryptedBuffer);
+            os.write(decryptedBuffer, 0, decrypted);
+          }
+          int decrypted = cipher.doFinal(decryptedBuffer, 0);
+          os.write(decryptedBuffer, 0, decrypted);
+          return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, decryptedFile.toPath()));
+        } catch (GeneralSecurityException e) {
+          // do not leave a truncated plaintext behind
+          decryptedFile.delete();
+          throw e;
+        }
+      } else {
+        String message = "Failed to create output file.";
+        logger.warning(message);
+        return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, message);
+      }
 
-          instream.read(buffer);
+    } catch (Exception e) {
+      String errorMessage = e.getMessage();
+      logger.warning(errorMessage);
+      return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, errorMessage);
+    }
+  }
 
-          final byte[] locatorTokenLengthBytes = Arrays.copyOfRange(buffer, 0, 4);
-          int locatorTokenLength = ByteBuffer.wrap(locatorTokenLengthBytes).getInt();
+  @Override
+  public void writeLocatorToken(OutputStream target, String locatorToken) throws IOException {
+    DataOutputStream header = new DataOutputStream(target);
+    header.writeInt(locatorToken.length());
+    header.write(locatorToken.getBytes());
+  }
 
-          final byte[] locatorTokenBytes = Arrays.copyOfRange(buffer, locatorTokenLengthBytes.length, locatorTokenLengthBytes.length+locatorTokenLength);
-          final byte[] saltTextBytes = Arrays.copyOfRange(buffer, locatorTokenLengthBytes.length+locatorTokenLength, locatorTokenLengthBytes.length+locatorTokenLength+8);
-          final byte[] saltBytes = Arrays.copyOfRange(buffer, locatorTokenLengthBytes.length+locatorTokenLength+saltTextBytes.length, locatorTokenLengthBytes.length+locatorTokenLength+saltTextBytes.length+8);
-          final byte[] ciphertextBytes = Arrays.copyOfRange(buffer, locatorTokenLengthBytes.length+locatorTokenLength+saltTextBytes.length+saltBytes.length, buffer.length);
+  @Override
+  public OutputStream encryptingBodyStream(OutputStream target, String key, String fileName) throws IOException {
 
-          return retrieveKeyFunction.apply(new String((locatorTokenBytes)))
-                  .thenApply((key) -> {
-                    try {
-                      byte[] k = new byte[keySize / 8];
-                      byte[] iv = new byte[ivSize / 8];
+    byte[] saltTextBytes = new byte[]{0x53, 0x61, 0x6c, 0x74, 0x65, 0x64, 0x5f, 0x5f};//"Salted__".getBytes();
+    byte[] saltBytes = UUID.randomUUID().toString().substring(0, 8).getBytes();
 
-                      evpKDF(key.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, k, iv);
+    try {
+      byte[] k = new byte[keySize / 8];
+      byte[] iv = new byte[ivSize / 8];
+      evpKDF(key.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, k, iv);
 
-                      Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", new BouncyCastleProvider());
-                      cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(k, "AES"), new IvParameterSpec(iv));
-                      byte[] decryptedBytes = cipher.doFinal(ciphertextBytes);
+      // the stream may be written from any thread, so it gets its own cipher rather than the thread's one
+      Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(k, "AES"), new IvParameterSpec(iv));
 
-                      File decryptedFile = targetFilePath.toFile();
+      //file format: locatorTokenLengthBytes + locatorTokenBytes ( see writeLocatorToken ) + saltTextBytes + saltBytes + encryptedBytes
+      target.write(saltTextBytes);
+      target.write(saltBytes);
 
-                      if (decryptedFile.createNewFile()) {
-                        try (FileOutputStream os = new FileOutputStream(decryptedFile)) {
-                          os.write(decryptedBytes);
-                          return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, decryptedFile.toPath()));
-                        }
-                      } else {
-                        String message = "Failed to create output file.";
-                        logger.warning(message);
-                        return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, message);
-                      }
-                    } catch (Exception e) {
-                      String errorMessage = e.getMessage();
-                      logger.warning(errorMessage);
-                      return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, errorMessage);
-                    }
+      return new CipherOutputStream(target, cipher);
 
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
 
-                  }).get();
+  @Override
+  public String readLocatorToken(InputStream source) throws IOException {
+    DataInputStream header = new DataInputStream(source);
+    final int tokenSize = header.readInt();
+    if (tokenSize < 0 || tokenSize > MAX_LOCATOR_TOKEN_LENGTH) {
+      throw new IOException(String.format("Invalid locator token length: %d", tokenSize));
+    }
+    byte[] locatorTokenBytes = new byte[tokenSize];
+    header.readFully(locatorTokenBytes);
+    return new String(locatorTokenBytes);
+  }
 
-        } catch (Exception e) {
-          String errorMessage = e.getMessage();
-          logger.warning(errorMessage);
-          return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, errorMessage);
-        }
+  @Override
+  public InputStream decryptingStream(InputStream source, String key) throws IOException {
 
+    DataInputStream header = new DataInputStream(source);
+    final byte[] saltTextBytes = new byte[8];
+    header.readFully(saltTextBytes);
+    final byte[] saltBytes = new byte[8];
+    header.readFully(saltBytes);
 
-      } catch (Exception e) {
-        String errorMessage = e.getMessage();
-        logger.warning(errorMessage);
-        return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, errorMessage);
+    try {
+      byte[] k = new byte[keySize / 8];
+      byte[] iv = new byte[ivSize / 8];
+      evpKDF(key.getBytes(StandardCharsets.UTF_8), keySize, ivSize, saltBytes, k, iv);
 
-      }
+      Cipher cipher = Cipher.getInstance(TRANSFORMATION, PROVIDER);
+      cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(k, "AES"), new IvParameterSpec(iv));
 
+      return new CipherInputStream(source, cipher);
 
-    });
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e.getMessage(), e);
+    }
   }
 }
@@ -3,24 +3,44 @@ package com.xqmsg.sdk.v2.algorithms;
 import com.xqmsg.sdk.v2.CallStatus;
 import com.xqmsg.sdk.v2.Reasons;
 import com.xqmsg.sdk.v2.ServerResponse;
-import com.xqmsg.sdk.v2.common.ByteArrayReader;
 import com.xqmsg.sdk.v2.common.ByteArrayWriter;
 
-import java.io.ByteArrayOutputStream;
+import javax.crypto.ShortBufferException;
+
+import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.DataOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -38,6 +58,101 @@ public class OTPv2Encryption implements XQAlgorithm {
   public static final String prefix = ".X";
   private static final String name = "Extended One-Time Pad";
 
+  /**
+   * Bounds of the buffer files are streamed through. The size is rounded down to a multiple of {@link #BUFFER_ALIGNMENT}.
+   */
+  public static final int MIN_BUFFER_SIZE = 64 * 1024;
+  public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+  private static final int BUFFER_ALIGNMENT = 4096;
+  /**
+   * Files with at least this many bytes of content are encrypted and decrypted in parallel chunks.
+   */
+  public static final long DEFAULT_PARALLEL_THRESHOLD = 8L * 1024 * 1024;
+
+  private final Executor cpuExecutor;
+  private final Executor ioExecutor;
+  private final int bufferSize;
+  private final long parallelThreshold;
+
+  /**
+   * Direct memory is only given back once the buffer is garbage collected, so no more than {@link #maxDirectBuffers} direct buffers
+   * of {@link #bufferSize} bytes are ever allocated. Files and chunks borrow one from this pool and return it when done,
+   * whichever thread they run on ( a pooled thread, or a virtual thread that never runs a second task ).
+   */
+  private final int maxDirectBuffers;
+  private final Queue<ByteBuffer> directBuffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger directBuffersAllocated = new AtomicInteger();
+
+  /**
+   * File names are far shorter; a longer length prefix means the header is corrupt.
+   */
+  public static final int MAX_FILENAME_LENGTH = 4096;
+
+  /**
+   * Parsed headers of the files opened with {@link #openRange}, least recently used first. Keys are never cached here.
+   */
+  private static final int MAX_RANGE_HEADERS = 256;
+  private final LinkedHashMap<Path, OTPv2RangeReader.Header> rangeHeaders = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, OTPv2RangeReader.Header> eldest) {
+      return size() > MAX_RANGE_HEADERS;
+    }
+  };
+
+  public OTPv2Encryption() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param cpuExecutor runs the in-memory ( text ) encryption and decryption.
+   * @param ioExecutor runs the file encryption and decryption, which block on disk ( never on key retrieval, which is a chained stage ).
+   */
+  public OTPv2Encryption(Executor cpuExecutor, Executor ioExecutor) {
+    this(cpuExecutor, ioExecutor, DEFAULT_BUFFER_SIZE, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * @param cpuExecutor runs the in-memory ( text ) encryption and decryption.
+   * @param ioExecutor runs the file encryption and decryption, which block on disk ( never on key retrieval, which is a chained stage ).
+   * @param bufferSize the size of the buffer files are streamed through, clamped to [{@link #MIN_BUFFER_SIZE}, {@link #MAX_BUFFER_SIZE}].
+   * @param parallelThreshold files with at least this many bytes of content are split into chunks processed on `cpuExecutor`;
+   *                          a negative value always processes files sequentially.
+   */
+  public OTPv2Encryption(Executor cpuExecutor, Executor ioExecutor, int bufferSize, long parallelThreshold) {
+    this(cpuExecutor, ioExecutor, bufferSize, parallelThreshold, parallelismOf(ioExecutor));
+  }
+
+  /**
+   * @param cpuExecutor runs the in-memory ( text ) encryption and decryption.
+   * @param ioExecutor runs the file encryption and decryption, which block on disk ( never on key retrieval, which is a chained stage ).
+   * @param bufferSize the size of the buffer files are streamed through, clamped to [{@link #MIN_BUFFER_SIZE}, {@link #MAX_BUFFER_SIZE}].
+   * @param parallelThreshold files with at least this many bytes of content are split into chunks processed on `cpuExecutor`;
+   *                          a negative value always processes files sequentially.
+   * @param maxDirectBuffers the most direct buffers ever allocated, normally the I/O parallelism;
+   *                         files and chunks that find none left use a heap buffer.
+   */
+  public OTPv2Encryption(Executor cpuExecutor, Executor ioExecutor, int bufferSize, long parallelThreshold, int maxDirectBuffers) {
+    this.cpuExecutor = cpuExecutor;
+    this.ioExecutor = ioExecutor;
+    this.bufferSize = Math.min(MAX_BUFFER_SIZE, Math.max(MIN_BUFFER_SIZE, bufferSize)) / BUFFER_ALIGNMENT * BUFFER_ALIGNMENT;
+    this.parallelThreshold = parallelThreshold;
+    this.maxDirectBuffers = Math.max(1, maxDirectBuffers);
+  }
+
+  /**
+   * The number of threads of a pool, or the default I/O parallelism for executors that do not have a fixed number.
+   */
+  private static int parallelismOf(Executor executor) {
+    if (executor instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+    }
+    if (executor instanceof ForkJoinPool) {
+      return ((ForkJoinPool) executor).getParallelism();
+    }
+    return Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
   //  @Override
   public String name() {
     return name;
@@ -71,23 +186,20 @@ public class OTPv2Encryption implements XQAlgorithm {
 
       byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
 
-      byte[] expandedKeyData = expandKey(key, encoded.length)
-                                   .getBytes(StandardCharsets.UTF_8);
+      byte[] expandedKeyData = expandKeyBytes(key, encoded.length);
 
       if (expandedKeyData == null) {
         logger.warning("Key could not be UTF8 encoded.");
         return null;
       }
 
-      for (int x = 0; x < encoded.length; ++x) {
-        encoded[x] ^= expandedKeyData[x % expandedKeyData.length];
-      }
+      xor(ByteBuffer.wrap(encoded), ByteBuffer.wrap(encoded), expandedKeyData);
       String expandedKey = "" + new String(expandedKeyData);
       logger.info(String.format("Expanded Key: %s", expandedKey));
 
       return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, Base64.getEncoder().encode(encoded)));
 
-    }).exceptionally((e) -> {
+    }, cpuExecutor).exceptionally((e) -> {
       e.printStackTrace();
       throw new CompletionException(e);
     });
@@ -124,13 +236,11 @@ public class OTPv2Encryption implements XQAlgorithm {
         return null;
       }
 
-      for (int x = 0; x < byteData.length; ++x) {
-        byteData[x] ^= keyData[x % keyData.length];
-      }
+      xor(ByteBuffer.wrap(byteData), ByteBuffer.wrap(byteData), keyData);
 
       return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,  new String(byteData, StandardCharsets.UTF_8)));
 
-    }).exceptionally((e) -> {
+    }, cpuExecutor).exceptionally((e) -> {
       e.printStackTrace();
       throw new CompletionException(e);
     });
@@ -139,6 +249,7 @@ public class OTPv2Encryption implements XQAlgorithm {
   @Override
   public CompletableFuture<ServerResponse> encrypt(Path sourceFilePath, Path targetFilePath, String expandedKey, String locatorToken) {
 
+    // the content may be processed in chunks on the CPU executor; the channels stay open until they are done
     return CompletableFuture.supplyAsync(() -> {
 
       if (sourceFilePath.toFile().exists()) {
@@ -148,7 +259,7 @@ public class OTPv2Encryption implements XQAlgorithm {
       } else {
         String message = "Source file does not exist.";
         logger.warning(message);
-        return new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message);
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message));
       }
       String key =  expandedKey;
 
@@ -156,12 +267,24 @@ public class OTPv2Encryption implements XQAlgorithm {
       if (keyData.length < 64) {
         String message = "OTP Source Key must be at least 2048 bytes.";
         logger.warning(message);
-        return new ServerResponse(CallStatus.Error, Reasons.InvalidEncryptionKey, message);
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.InvalidEncryptionKey, message));
       }
 
-      try (FileInputStream instream = new FileInputStream(sourceFilePath.toFile());
-           ByteArrayOutputStream out = new ByteArrayOutputStream();
-           DataOutputStream dao = new DataOutputStream(out)) {
+      FileChannel inChannel = null;
+      FileChannel outChannel = null;
+      try {
+        inChannel = FileChannel.open(sourceFilePath, StandardOpenOption.READ);
+        try {
+          outChannel = FileChannel.open(targetFilePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        } catch (FileAlreadyExistsException e) {
+          closeQuietly(inChannel);
+          String message = "Failed to create output file.";
+          logger.warning(message);
+          return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, message));
+        }
+
+        // the header is small, it goes straight through to the channel
+        DataOutputStream dao = new DataOutputStream(Channels.newOutputStream(outChannel));
 
         //Write the locator into the file
         ByteArrayWriter.with(dao).addInt(locatorToken.length()).reverse().writeOut();
@@ -174,62 +297,36 @@ public class OTPv2Encryption implements XQAlgorithm {
                                                   .addString(sourceFilePath.getFileName().toString())
                                                   .getBytes();
 
-        logger.info("File size (bytes): " + instream.available());
+        logger.info("File size (bytes): " + inChannel.size());
         logger.info("Original filename: "+ new String(fileNameByteArray, StandardCharsets.UTF_8));
-        int keyIndex = 0;
+        final XorKernel kernel = new XorKernel(keyData);
         byte[] encryptedFileNameByteArray=fileNameByteArray;
-        for (int x = 0; x < encryptedFileNameByteArray.length; ++x) {
-          encryptedFileNameByteArray[x] ^= keyData[keyIndex];
-          if (++keyIndex >= keyData.length) keyIndex = 0;
-        }
+        kernel.apply(encryptedFileNameByteArray, 0, encryptedFileNameByteArray.length, 0);
 
         logger.info("Encrypted filename: "+ new String(encryptedFileNameByteArray, StandardCharsets.UTF_8));
         ByteArrayWriter.with(dao).addBytes(encryptedFileNameByteArray).writeOut();
 
-        File encryptedFile = targetFilePath.toFile();
-
-        if (encryptedFile.createNewFile()) {
-
-          try (FileOutputStream outstream = new FileOutputStream(encryptedFile)) {
-
-            // read data in ch
-            final int READ_CHUNK = 1028;
-            byte[] inputBuffer = new byte[READ_CHUNK]; // We will stream
-            long readAmount = Math.min(instream.available(), READ_CHUNK);
-            keyIndex = 0;
-            //encrypt the file content using the key
-            while (readAmount > 0) {
-              int dataRead = instream.read(inputBuffer);
-              for (int x = 0; x < dataRead; ++x) {
-                inputBuffer[x] ^= keyData[keyIndex];
-                if (++keyIndex >= keyData.length) keyIndex = 0;
-              }
-              dao.write(inputBuffer, 0, dataRead);
-              readAmount = Math.min(instream.available(), READ_CHUNK);
-            }
-            outstream.write(out.toByteArray());
-          }
-          return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, encryptedFile.toPath()));
-
-        } else {
-          String message = "Failed to create output file.";
-          logger.warning(message);
-          return new ServerResponse(CallStatus.Error, Reasons.OutputFileCreationFailed, message);
-        }
+        //encrypt the file content using the key, starting over at index 0
+        return xorAndClose(inChannel, 0, outChannel, outChannel.position(), inChannel.size(), kernel, targetFilePath);
 
-      } catch (FileNotFoundException e) {
+      } catch (NoSuchFileException e) {
+        closeQuietly(inChannel, outChannel);
         e.printStackTrace();
-        return new ServerResponse(CallStatus.Error, Reasons.FileNotFound, e.getMessage());
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.FileNotFound, e.getMessage()));
       } catch (IOException e) {
+        closeQuietly(inChannel, outChannel);
         e.printStackTrace();
-        return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage());
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
       }
-    });
+    }, ioExecutor)
+            .thenCompose(Function.identity());
 
   }
 
   @Override
   public CompletableFuture<ServerResponse> decrypt(Path sourceFilePath, Path targetFilePath, Function<String, CompletableFuture<String>> retrieveKeyFunction) {
+    // the header is parsed, the key retrieved and the content decrypted as separate stages,
+    // so that no thread is held while the key is being retrieved.
     return CompletableFuture.supplyAsync(() -> {
       if (sourceFilePath.toFile().exists()) {
         if (targetFilePath.toFile().exists()) {
@@ -238,97 +335,350 @@ public class OTPv2Encryption implements XQAlgorithm {
       } else {
         String message = "Source file does not exist.";
         logger.warning(message);
-        return new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message);
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, message));
       }
 
-      try (FileInputStream instream = new FileInputStream(sourceFilePath.toFile());
-           DataInputStream dai = new DataInputStream(instream)) {
+      // only the header is read here; the file is opened again once the key is known.
+      try (FileChannel inChannel = FileChannel.open(sourceFilePath, StandardOpenOption.READ)) {
+
+        // the header is read straight from the channel, leaving it positioned at the content
+        DataInputStream dai = new DataInputStream(Channels.newInputStream(inChannel));
 
-        // Read the token
-        final int tokenSize = ByteArrayReader.with(dai).addInt(4).reverse().intValue();
-        byte[] locatorTokenBytes = ByteArrayReader.with(dai).addInt(tokenSize).getBytes();
+        final String locatorToken = readLocatorToken(dai);
+        final byte[] filenameBytes = readFilename(dai, inChannel.size() - inChannel.position());
 
-        // Read the filename
-        final int filenameSize = ByteArrayReader.with(dai).addInt(4).reverse().intValue();
-        byte[] filenameBytes = ByteArrayReader.with(dai).addInt(filenameSize).getBytes();
+        final long contentOffset = inChannel.position();
 
         return retrieveKeyFunction
-                .apply(new String((locatorTokenBytes)))
-                .thenApply((k) -> {
-
-                  String key = k;
-
-                  if (key == null) {
-                    String message = "Unable to retrieve a valid key.";
-                    return new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, message);
-                  }
-
-                  byte[] keyData = key.getBytes(StandardCharsets.UTF_8);
-
-                  if (keyData.length < 64) {
-                    String message = "OTP Source Key must be at least 64 bytes.";
-                    return new ServerResponse(CallStatus.Error, Reasons.InvalidEncryptionKey, message);
-                  }
-                  logger.info("Filename : " + new String(filenameBytes, StandardCharsets.UTF_8));
-                  // Decrypt the filename using the key.
-                  int keyIndex = 0;
-                  byte[] decoded = filenameBytes;
-                  for (int x = 0; x < filenameBytes.length; ++x) {
-                    decoded[x] ^= keyData[keyIndex];
-                    if (++keyIndex >= keyData.length) keyIndex = 0;
-                  }
-
-                  logger.info("Decrypted Filename: " + new String(decoded, StandardCharsets.UTF_8));
-
-
-                  // Confirm writeability.
-                  File decryptedFile = targetFilePath.toFile();
-                  try {
-                    /// Decrypt the message content.
-                    if (!decryptedFile.createNewFile()) {
-                      String message = "Failed to create new file.";
-                      logger.warning(message);
-                      return new ServerResponse(CallStatus.Error, Reasons.FileCreateFailed, message);
-                    }
+                .apply(locatorToken)
+                .thenComposeAsync((key) -> decrypt(sourceFilePath, contentOffset, filenameBytes, targetFilePath, key), ioExecutor)
+                .exceptionally((e) -> {
+                  Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                  String message = String.format("Unable to retrieve a valid key: %s", cause.getMessage());
+                  logger.warning(message);
+                  return new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, message);
+                });
+
+      } catch (NoSuchFileException e) {
+        e.printStackTrace();
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.FileNotFound, e.getMessage()));
+      } catch (IOException e) {
+        e.printStackTrace();
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
+      }
+    }, ioExecutor)
+            .thenCompose(Function.identity())
+            .exceptionally((e) -> {
+              Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+              logger.warning(cause.getMessage());
+              return new ServerResponse(CallStatus.Error, Reasons.InternalException, cause.getMessage());
+            });
+  }
 
-                  } catch (IOException e) { }
-
-                  try (FileOutputStream outstream = new FileOutputStream(decryptedFile)) {
-
-
-                    final int READ_CHUNK = 1028;
-                    byte[] inputBuffer = new byte[READ_CHUNK]; // We will stream
-                    int available = instream.available();
-                    long readAmount = Math.min(available, READ_CHUNK);
-                    keyIndex = 0;
-                    while (readAmount > 0) {
-                      int dataRead = instream.read(inputBuffer);
-                      for (int x = 0; x < dataRead; ++x) {
-                        inputBuffer[x] ^= keyData[keyIndex];
-                        if (++keyIndex >= keyData.length) keyIndex = 0;
-                      }
-                      outstream.write(inputBuffer, 0, dataRead);
-                      logger.info("Decrypted File Data: " + new String(inputBuffer, StandardCharsets.UTF_8));
-                      readAmount = Math.min(instream.available(), READ_CHUNK);
-                    }
-                  } catch (FileNotFoundException e) {
-                    e.printStackTrace();
-                  } catch (IOException e) {
-                    e.printStackTrace();
-                  }
+  /**
+   * Decrypts the file name and the content, which starts at `contentOffset`, into the target.
+   */
+  private CompletableFuture<ServerResponse> decrypt(Path sourceFilePath, long contentOffset, byte[] filenameBytes, Path targetFilePath, String key) {
 
-                  return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, decryptedFile.toPath()));
-                }).get();
+    if (key == null) {
+      String message = "Unable to retrieve a valid key.";
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, message));
+    }
 
-      } catch (FileNotFoundException e) {
-        e.printStackTrace();
-        return new ServerResponse(CallStatus.Error, Reasons.FileNotFound, e.getMessage());
-      } catch (IOException | InterruptedException | ExecutionException e) {
-        e.printStackTrace();
-        return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage());
+    byte[] keyData = key.getBytes(StandardCharsets.UTF_8);
+
+    if (keyData.length < 64) {
+      String message = "OTP Source Key must be at least 64 bytes.";
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.InvalidEncryptionKey, message));
+    }
+    logger.info("Filename : " + new String(filenameBytes, StandardCharsets.UTF_8));
+    // Decrypt the filename using the key.
+    final XorKernel kernel = new XorKernel(keyData);
+    byte[] decoded = filenameBytes;
+    kernel.apply(decoded, 0, decoded.length, 0);
+
+    logger.info("Decrypted Filename: " + new String(decoded, StandardCharsets.UTF_8));
+
+    /// Decrypt the message content.
+    FileChannel inChannel = null;
+    try {
+      inChannel = FileChannel.open(sourceFilePath, StandardOpenOption.READ);
+      final long length = inChannel.size() - contentOffset;
+      FileChannel outChannel = FileChannel.open(targetFilePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+      return xorAndClose(inChannel, contentOffset, outChannel, 0, length, kernel, targetFilePath);
+    } catch (FileAlreadyExistsException e) {
+      closeQuietly(inChannel);
+      String message = "Failed to create new file.";
+      logger.warning(message);
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.FileCreateFailed, message));
+    } catch (NoSuchFileException e) {
+      closeQuietly(inChannel);
+      e.printStackTrace();
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.FileNotFound, e.getMessage()));
+    } catch (IOException e) {
+      closeQuietly(inChannel);
+      e.printStackTrace();
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
+    }
+  }
+
+  /**
+   * Borrows the transfer buffer for `size` bytes of content; it goes back with {@link #giveBack}.
+   * Contents smaller than {@link #bufferSize} get a heap buffer of their own size, larger ones one of the {@link #directBuffers},
+   * so encrypting many files allocates no direct memory per file. Once all of those are allocated and borrowed, a heap buffer.
+   */
+  private ByteBuffer borrowBuffer(long size) {
+    if (size < bufferSize) {
+      return ByteBuffer.allocate((int) Math.max(Long.BYTES, size));
+    }
+    final ByteBuffer pooled = directBuffers.poll();
+    if (pooled != null) {
+      return pooled;
+    }
+    if (directBuffersAllocated.getAndUpdate(n -> n < maxDirectBuffers ? n + 1 : n) < maxDirectBuffers) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    return ByteBuffer.allocate(bufferSize);
+  }
+
+  private void giveBack(ByteBuffer buffer) {
+    if (buffer.isDirect()) {
+      buffer.clear();
+      directBuffers.offer(buffer);
+    }
+  }
+
+  /**
+   * @return the number of direct buffers allocated so far, never more than the `maxDirectBuffers` given at construction.
+   */
+  public int directBufferCount() {
+    return directBuffersAllocated.get();
+  }
 
+  /**
+   * XORs the content into the target ( see {@link #xor(FileChannel, long, FileChannel, long, long, XorKernel)} ),
+   * then closes both channels.
+   *
+   * @return ServerResponse#payload:{data:Path}, the target, once the content has been written and the channels closed.
+   */
+  private CompletableFuture<ServerResponse> xorAndClose(FileChannel in, long inStart, FileChannel out, long outStart, long length,
+                                                        XorKernel kernel, Path targetFilePath) {
+    final CompletableFuture<Void> content = xor(in, inStart, out, outStart, length, kernel);
+    final BiFunction<Void, Throwable, ServerResponse> close = (ignored, e) -> {
+      Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof UncheckedIOException) {
+        cause = cause.getCause();
       }
-    });
+      try {
+        out.close();
+      } catch (IOException closeFailure) {
+        cause = cause != null ? cause : closeFailure;
+      } finally {
+        closeQuietly(in);
+      }
+      if (cause == null) {
+        return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, targetFilePath));
+      }
+      cause.printStackTrace();
+      return cause instanceof NoSuchFileException
+              ? new ServerResponse(CallStatus.Error, Reasons.FileNotFound, cause.getMessage())
+              : new ServerResponse(CallStatus.Error, Reasons.IOException, cause.getMessage());
+    };
+    // chunks complete on the CPU executor, closing the channels is I/O
+    return content.isDone() ? content.handle(close) : content.handleAsync(close, ioExecutor);
+  }
+
+  private static void closeQuietly(Closeable... closeables) {
+    for (Closeable closeable : closeables) {
+      if (closeable == null) {
+        continue;
+      }
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        logger.warning(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * XORs `length` bytes of content, read from `in` at `inStart` and written to `out` at `outStart`.<br>
+   * Byte `i` of the content is XORed with `keyData[i % keyLength]`, so the content can be split into ranges processed independently:
+   * contents of at least {@link #parallelThreshold} bytes are split into chunks processed on the CPU executor, smaller ones are
+   * processed on the calling thread. Both produce the same output.
+   *
+   * @return a future completed once every byte has been written, exceptionally with an {@link UncheckedIOException} if one could not be.
+   * No thread waits for the chunks, so the channels must stay open until it completes.
+   */
+  private CompletableFuture<Void> xor(FileChannel in, long inStart, FileChannel out, long outStart, long length, XorKernel kernel) {
+
+    if (parallelThreshold < 0 || length < parallelThreshold) {
+      final ByteBuffer buffer = borrowBuffer(length);
+      try {
+        xor(in, inStart, out, outStart, 0, length, kernel, buffer);
+        return CompletableFuture.completedFuture(null);
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(new UncheckedIOException(e));
+      } finally {
+        giveBack(buffer);
+      }
+    }
+
+    final int parallelism = cpuExecutor instanceof ForkJoinPool
+            ? ((ForkJoinPool) cpuExecutor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+    // a few chunks per thread to even out the load, each a whole number of buffers
+    final long buffers = (length + bufferSize - 1) / bufferSize;
+    final long chunkSize = Math.max(1, buffers / (parallelism * 4L)) * bufferSize;
+
+    List<CompletableFuture<Void>> chunks = new ArrayList<>();
+    for (long from = 0; from < length; from += chunkSize) {
+      final long chunkFrom = from;
+      final long chunkTo = Math.min(length, from + chunkSize);
+      chunks.add(CompletableFuture.runAsync(() -> {
+        final ByteBuffer buffer = borrowBuffer(chunkTo - chunkFrom);
+        try {
+          xor(in, inStart, out, outStart, chunkFrom, chunkTo, kernel, buffer);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } finally {
+          giveBack(buffer);
+        }
+      }, cpuExecutor));
+    }
+
+    return CompletableFuture.allOf(chunks.toArray(CompletableFuture<?>[]::new));
+  }
+
+  /**
+   * XORs content bytes `[from, to)` one buffer at a time, using positional reads and writes only,
+   * so several ranges of the same channels can be processed at once.
+   */
+  private static void xor(FileChannel in, long inStart, FileChannel out, long outStart, long from, long to, XorKernel kernel, ByteBuffer buffer) throws IOException {
+    int keyIndex = (int) (from % kernel.keyLength());
+    long position = from;
+    while (position < to) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), to - position));
+      int read = in.read(buffer, inStart + position);
+      if (read == -1) {
+        throw new EOFException(String.format("Unexpected end of file at byte %d of %d.", position, to));
+      }
+      buffer.flip();
+      keyIndex = kernel.apply(buffer, buffer, keyIndex);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        out.write(buffer, outStart + position + buffer.position());
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Opens an OTPv2 file for range decryption ( see {@link OTPv2RangeReader} ).<br>
+   * The parsed header is cached per file, so opening the same, unmodified file again does not parse it again.
+   * The key is not cached: `retrieveKeyFunction` is called on every open, so access is checked each time and a revoked key
+   * can no longer open the file.
+   *
+   * @return ServerResponse#payload:{data:OTPv2RangeReader}
+   */
+  public CompletableFuture<ServerResponse> openRange(Path sourceFilePath, Function<String, CompletableFuture<String>> retrieveKeyFunction) {
+
+    final Path path = sourceFilePath.toAbsolutePath().normalize();
+
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+          final long size = channel.size();
+          final long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+          OTPv2RangeReader.Header cached;
+          synchronized (rangeHeaders) {
+            cached = rangeHeaders.get(path);
+          }
+          final OTPv2RangeReader.Header header;
+          if (cached != null && cached.matches(size, lastModified)) {
+            header = cached;
+          } else {
+            InputStream source = Channels.newInputStream(channel);
+            final String locatorToken = readLocatorToken(source);
+            final byte[] filenameBytes = readFilename(new DataInputStream(source), size - channel.position());
+            header = new OTPv2RangeReader.Header(path, size, lastModified, locatorToken, filenameBytes, channel.position());
+            synchronized (rangeHeaders) {
+              rangeHeaders.put(path, header);
+            }
+          }
+
+          return retrieveKeyFunction
+                  .apply(header.locatorToken)
+                  .thenApply((key) -> {
+                    if (key == null) {
+                      closeQuietly(channel);
+                      return new ServerResponse(CallStatus.Error, Reasons.MissingEncryptionKey, "Unable to retrieve a valid key.");
+                    }
+                    byte[] keyData = key.getBytes(StandardCharsets.UTF_8);
+                    if (keyData.length < 64) {
+                      closeQuietly(channel);
+                      return new ServerResponse(CallStatus.Error, Reasons.InvalidEncryptionKey, "OTP Source Key must be at least 64 bytes.");
+                    }
+                    XorKernel kernel = new XorKernel(keyData);
+                    byte[] filenameBytes = header.encryptedFileName.clone();
+                    kernel.apply(filenameBytes, 0, filenameBytes.length, 0);
+                    return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,
+                            new OTPv2RangeReader(channel, header, kernel, new String(filenameBytes, StandardCharsets.UTF_8))));
+                  })
+                  .whenComplete((response, e) -> {
+                    if (e != null) {
+                      closeQuietly(channel);
+                    }
+                  });
+        } catch (IOException | RuntimeException e) {
+          closeQuietly(channel);
+          throw e;
+        }
+      } catch (NoSuchFileException e) {
+        logger.warning(String.format("Source file does not exist: %s", path));
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, e.getMessage()));
+      } catch (IOException e) {
+        logger.warning(e.getMessage());
+        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
+      }
+    }, ioExecutor).thenCompose(Function.identity());
+  }
+
+  /**
+   * Drops the cached header of a file opened with {@link #openRange}, e.g. after the file was replaced.
+   */
+  public void evictRange(Path sourceFilePath) {
+    synchronized (rangeHeaders) {
+      rangeHeaders.remove(sourceFilePath.toAbsolutePath().normalize());
+    }
+  }
+
+  /**
+   * Reads the length prefixed, still encrypted file name which follows the locator token.
+   *
+   * @param remaining the number of bytes left in the source, if known.
+   * @throws IOException if the length is negative, larger than {@link #MAX_FILENAME_LENGTH} or than what is left of the source.
+   */
+  private static byte[] readFilename(DataInputStream dai, long remaining) throws IOException {
+    // read in full, so that a truncated header fails with an EOFException
+    final int filenameSize = Integer.reverseBytes(dai.readInt());
+    if (filenameSize < 0 || filenameSize > MAX_FILENAME_LENGTH || filenameSize > remaining - 4) {
+      throw new IOException(String.format("Invalid file name length: %d", filenameSize));
+    }
+    final byte[] filenameBytes = new byte[filenameSize];
+    dai.readFully(filenameBytes);
+    return filenameBytes;
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.warning(e.getMessage());
+    }
   }
 
   public static final long readUint(DataInputStream is) {
@@ -340,4 +690,181 @@ public class OTPv2Encryption implements XQAlgorithm {
     }
   }
 
+
+  @Override
+  public void writeLocatorToken(OutputStream target, String locatorToken) throws IOException {
+    DataOutputStream dao = new DataOutputStream(target);
+    ByteArrayWriter.with(dao).addInt(locatorToken.length()).reverse().writeOut();
+    ByteArrayWriter.with(dao).addString(locatorToken).writeOut();
+  }
+
+  @Override
+  public OutputStream encryptingBodyStream(OutputStream target, String key, String fileName) throws IOException {
+
+    byte[] keyData = key.getBytes(StandardCharsets.UTF_8);
+    if (keyData.length < 64) {
+      throw new IOException("OTP Source Key must be at least 64 bytes.");
+    }
+
+    DataOutputStream dao = new DataOutputStream(target);
+
+    //write the encrypted filename into the file
+    ByteArrayWriter.with(dao).addInt(fileName.length()).reverse().writeOut();
+    byte[] fileNameByteArray = ByteArrayWriter.with(dao).addString(fileName).getBytes();
+    new XorKernel(keyData).apply(fileNameByteArray, 0, fileNameByteArray.length, 0);
+    ByteArrayWriter.with(dao).addBytes(fileNameByteArray).writeOut();
+
+    // the content is encrypted with the key starting over at index 0
+    return new XorOutputStream(target, keyData);
+  }
+
+  @Override
+  public String readLocatorToken(InputStream source) throws IOException {
+    DataInputStream dai = new DataInputStream(source);
+    // read in full, so that a truncated header fails with an EOFException
+    final int tokenSize = Integer.reverseBytes(dai.readInt());
+    if (tokenSize < 0 || tokenSize > MAX_LOCATOR_TOKEN_LENGTH) {
+      throw new IOException(String.format("Invalid locator token length: %d", tokenSize));
+    }
+    final byte[] locatorTokenBytes = new byte[tokenSize];
+    dai.readFully(locatorTokenBytes);
+    return new String(locatorTokenBytes);
+  }
+
+  @Override
+  public InputStream decryptingStream(InputStream source, String key) throws IOException {
+
+    byte[] keyData = key.getBytes(StandardCharsets.UTF_8);
+    if (keyData.length < 64) {
+      throw new IOException("OTP Source Key must be at least 64 bytes.");
+    }
+
+    // skip the filename, it is not part of the content
+    readFilename(new DataInputStream(source), Long.MAX_VALUE);
+
+    return new XorInputStream(source, keyData);
+  }
+
+  /**
+   * XORs `src` with the key into `dst`. The key is used as is; expanding it to the length of the data,
+   * as the text variant does, is left to the caller.
+   */
+  @Override
+  public int encrypt(ByteBuffer src, ByteBuffer dst, String key) throws GeneralSecurityException {
+    checkCapacity(src, dst);
+    return xor(src, dst, key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public int decrypt(ByteBuffer src, ByteBuffer dst, String key) throws GeneralSecurityException {
+    checkCapacity(src, dst);
+    return xor(src, dst, key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void checkCapacity(ByteBuffer src, ByteBuffer dst) throws ShortBufferException {
+    if (dst.remaining() < src.remaining()) {
+      throw new ShortBufferException(String.format("Output buffer too small: %d bytes required, %d available.", src.remaining(), dst.remaining()));
+    }
+  }
+
+  @Override
+  public int maxEncryptedLength(int plaintextLength) {
+    return plaintextLength;
+  }
+
+  @Override
+  public int maxDecryptedLength(int ciphertextLength) {
+    return ciphertextLength;
+  }
+
+  /**
+   * XORs the remaining bytes of `src` into `dst` with the key, starting at key index 0.
+   * `src` and `dst` may be views of the same memory.
+   */
+  private static int xor(ByteBuffer src, ByteBuffer dst, byte[] keyData) {
+    int length = src.remaining();
+    if (length > 0 && keyData.length == 0) {
+      throw new IllegalArgumentException("OTPv2 key cannot be empty.");
+    }
+    if (length > 0) {
+      new XorKernel(keyData).apply(src, dst, 0);
+    }
+    return length;
+  }
+
+  private static class XorOutputStream extends FilterOutputStream {
+
+    private final byte[] keyData;
+    private final XorKernel kernel;
+    private final byte[] buffer = new byte[8192];
+    private int keyIndex = 0;
+
+    XorOutputStream(OutputStream out, byte[] keyData) {
+      super(out);
+      this.keyData = keyData;
+      this.kernel = new XorKernel(keyData);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b ^ keyData[keyIndex]);
+      if (++keyIndex >= keyData.length) keyIndex = 0;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        int chunk = Math.min(len, buffer.length);
+        keyIndex = kernel.apply(b, off, buffer, 0, chunk, keyIndex);
+        out.write(buffer, 0, chunk);
+        off += chunk;
+        len -= chunk;
+      }
+    }
+  }
+
+  private static class XorInputStream extends FilterInputStream {
+
+    private final byte[] keyData;
+    private final XorKernel kernel;
+    private int keyIndex = 0;
+
+    XorInputStream(InputStream in, byte[] keyData) {
+      super(in);
+      this.keyData = keyData;
+      this.kernel = new XorKernel(keyData);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b == -1) {
+        return -1;
+      }
+      b = (b ^ keyData[keyIndex]) & 0xFF;
+      if (++keyIndex >= keyData.length) keyIndex = 0;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+      if (read > 0) {
+        keyIndex = kernel.apply(b, off, read, keyIndex);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      keyIndex = (int) ((keyIndex + skipped) % keyData.length);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
 }
@@ -0,0 +1,128 @@
+package com.xqmsg.sdk.v2.algorithms;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Decrypts arbitrary byte ranges of an OTPv2 file without decrypting the rest of it.<br>
+ * Byte `i` of the content is XORed with `keyData[i % keyLength]`, so once the header has been parsed and the key retrieved,
+ * a range costs a single positional read. Reads do not move any shared position and may be issued from several threads at once.<br>
+ * Obtain one through {@link OTPv2Encryption#openRange}; closing it closes the underlying file.
+ */
+public class OTPv2RangeReader implements Closeable {
+
+  private final FileChannel channel;
+  private final Header header;
+  private final XorKernel kernel;
+  private final String fileName;
+
+  OTPv2RangeReader(FileChannel channel, Header header, XorKernel kernel, String fileName) {
+    this.channel = channel;
+    this.header = header;
+    this.kernel = kernel;
+    this.fileName = fileName;
+  }
+
+  /**
+   * Decrypts content bytes starting at `offset` into `dst`, filling it up to its limit or up to the end of the content.
+   * The position of `dst` is advanced by the number of bytes read.
+   *
+   * @param offset the offset within the decrypted content ( the header is not counted ).
+   * @return the number of bytes read, or -1 if `offset` is at or past the end of the content.
+   */
+  public int read(long offset, ByteBuffer dst) throws IOException {
+    if (offset < 0) {
+      throw new IllegalArgumentException(String.format("Invalid offset: %d", offset));
+    }
+    if (offset >= header.contentLength) {
+      return -1;
+    }
+    final int start = dst.position();
+    final int length = (int) Math.min(dst.remaining(), header.contentLength - offset);
+
+    ByteBuffer window = dst.duplicate();
+    window.limit(start + length);
+    while (window.hasRemaining()) {
+      int read = channel.read(window, header.contentOffset + offset + (window.position() - start));
+      if (read == -1) {
+        throw new EOFException(String.format("Unexpected end of file at byte %d of %d.", offset + window.position() - start, header.contentLength));
+      }
+    }
+
+    window.flip();
+    window.position(start);
+    kernel.apply(window, window, (int) (offset % kernel.keyLength()));
+    dst.position(start + length);
+    return length;
+  }
+
+  /**
+   * Decrypts up to `len` content bytes starting at `offset` into `b[off..off+len)`.
+   *
+   * @return the number of bytes read, or -1 if `offset` is at or past the end of the content.
+   */
+  public int read(long offset, byte[] b, int off, int len) throws IOException {
+    return read(offset, ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * @return the size of the decrypted content.
+   */
+  public long length() {
+    return header.contentLength;
+  }
+
+  /**
+   * @return the locator token of this file.
+   */
+  public String getLocatorToken() {
+    return header.locatorToken;
+  }
+
+  /**
+   * @return the name of the original file, as embedded in the header.
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * The parsed header of a file, as cached by {@link OTPv2Encryption}. It holds nothing derived from the key:
+   * the file name stays encrypted until a reader is opened with a freshly retrieved key.
+   * `size` and `lastModified` identify the version of the file it was parsed from.
+   */
+  static final class Header {
+
+    final Path path;
+    final long size;
+    final long lastModified;
+    final String locatorToken;
+    final byte[] encryptedFileName;
+    final long contentOffset;
+    final long contentLength;
+
+    Header(Path path, long size, long lastModified, String locatorToken, byte[] encryptedFileName, long contentOffset) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.locatorToken = locatorToken;
+      this.encryptedFileName = encryptedFileName;
+      this.contentOffset = contentOffset;
+      this.contentLength = size - contentOffset;
+    }
+
+    boolean matches(long size, long lastModified) {
+      return this.size == size && this.lastModified == lastModified;
+    }
+  }
+
+}
@@ -4,8 +4,13 @@ import com.xqmsg.sdk.v2.ServerResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -18,6 +23,11 @@ public interface XQAlgorithm {
   String ENCODED_STRING = "encoded";
   String EXPANDED_KEY = "expandedKey";
 
+    /**
+     * Locator tokens are far shorter; a longer length prefix means the file is not an encrypted container.
+     */
+  int MAX_LOCATOR_TOKEN_LENGTH = 4096;
+
     /**
      *  Returns the full name of the algorithm for displaying in lists.
      *
@@ -73,6 +83,96 @@ public interface XQAlgorithm {
      */
   CompletableFuture<ServerResponse> decrypt(Path sourceFilePath, Path targetFilePath, Function<String, CompletableFuture<String>> retrieveKeyFunction);
 
+    /**
+     * Encrypts the remaining bytes of `src` into `dst`, without any text or base64 encoding.
+     * <p>
+     * Both buffers may be direct. On return `src` is fully consumed and `dst` is positioned after the written bytes.
+     * If `dst` is too small ( see {@link #maxEncryptedLength} ) a {@link javax.crypto.ShortBufferException} is thrown and neither buffer is modified.<br>
+     * The text variant {@link #encrypt(String, String)} is this primitive with base64 added as an outer layer.
+     * - Parameters:
+     * @param src The plaintext.
+     * @param dst The space receiving the ciphertext.
+     * @param key The encryption passphrase.
+     * @return the number of bytes written to `dst`.
+     */
+  int encrypt(ByteBuffer src, ByteBuffer dst, String key) throws GeneralSecurityException;
+
+    /**
+     * Decrypts the remaining bytes of `src` into `dst`; the inverse of {@link #encrypt(ByteBuffer, ByteBuffer, String)}.
+     * <p>
+     * - Parameters:
+     * @param src The ciphertext.
+     * @param dst The space receiving the plaintext ( see {@link #maxDecryptedLength} ).
+     * @param key The encryption passphrase.
+     * @return the number of bytes written to `dst`.
+     */
+  int decrypt(ByteBuffer src, ByteBuffer dst, String key) throws GeneralSecurityException;
+
+    /**
+     * @return the largest number of bytes {@link #encrypt(ByteBuffer, ByteBuffer, String)} writes for a plaintext of the given length.
+     */
+  int maxEncryptedLength(int plaintextLength);
+
+    /**
+     * @return the largest number of bytes {@link #decrypt(ByteBuffer, ByteBuffer, String)} writes for a ciphertext of the given length.
+     */
+  int maxDecryptedLength(int ciphertextLength);
+
+    /**
+     * Writes the container header to the target and returns a stream which encrypts everything written to it.
+     * <p>
+     * The output is identical to what {@link #encrypt(Path, Path, String, String)} produces for the same content.
+     * - Parameters:
+     * @param target The stream receiving the encrypted container. It is closed when the returned stream is closed.
+     * @param key The key that was ultimately used (see {@link #encrypt(Path, Path, String, String)}).
+     * @param locatorToken The token that will be used to retrieve the key. This will be embedded in the header.
+     * @param fileName The original name of the content, for formats which embed it.
+     */
+  default OutputStream encryptingStream(OutputStream target, String key, String locatorToken, String fileName) throws IOException {
+    writeLocatorToken(target, locatorToken);
+    return encryptingBodyStream(target, key, fileName);
+  }
+
+    /**
+     * Writes the length prefixed locator token which starts every container; the counterpart of {@link #readLocatorToken}.
+     * <p>
+     * - Parameters:
+     * @param target The stream receiving the encrypted container. It is not closed.
+     * @param locatorToken The token that will be used to retrieve the key.
+     */
+  void writeLocatorToken(OutputStream target, String locatorToken) throws IOException;
+
+    /**
+     * Writes the rest of the container header to the target and returns a stream which encrypts everything written to it:
+     * everything that follows the locator token. This lets the content be encrypted before the token is known,
+     * and the token be prepended once it is ( see {@link #writeLocatorToken} ).
+     * <p>
+     * - Parameters:
+     * @param target The stream receiving the encrypted content. It is closed when the returned stream is closed.
+     * @param key The key that was ultimately used (see {@link #encrypt(Path, Path, String, String)}).
+     * @param fileName The original name of the content, for formats which embed it.
+     */
+  OutputStream encryptingBodyStream(OutputStream target, String key, String fileName) throws IOException;
+
+    /**
+     * Reads the locator token from the header of an encrypted container.
+     * <p>
+     * - Parameters:
+     * @param source The encrypted container, positioned at its start. On return it is positioned right after the token.
+     * @throws IOException if the length prefix is negative or larger than {@link #MAX_LOCATOR_TOKEN_LENGTH}.
+     */
+  String readLocatorToken(InputStream source) throws IOException;
+
+    /**
+     * Returns a stream which decrypts the remainder of a container as it is read.
+     * <p>
+     * - Parameters:
+     * @param source The encrypted container, positioned right after the locator token ( see {@link #readLocatorToken} ).
+     *               It is closed when the returned stream is closed.
+     * @param key The key retrieved for the locator token.
+     */
+  InputStream decryptingStream(InputStream source, String key) throws IOException;
+
    static <T> Logger Logger(Class<T> clazz){
     try {
       InputStream configurationStream = clazz.getClassLoader().getResourceAsStream("test-logging.properties");
@@ -94,10 +194,15 @@ public interface XQAlgorithm {
      */
 
    default String shuffle(String s) {
+        // a single word shuffles to itself, no need to split it
+        if (s.chars().noneMatch(Character::isWhitespace)) {
+            return s;
+        }
          var a = s.split("\\s");
         final int n = a.length;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
     for (int i = n - 1; i > 0; i--) {
-            int j = (int)Math.floor(Math.random() * (i + 1));
+            int j = random.nextInt(i + 1);
             String tmp = a[i];
       a[i] = a[j];
       a[j] = tmp;
@@ -106,23 +211,130 @@ public interface XQAlgorithm {
   }
 
     /**
-     * Expand a key length to that of the text that needs encryption.
+     * Expand a key length to that of the text that needs encryption.<br>
+     * The key is followed by as many {@link #shuffle shuffled} copies of itself as it takes to reach `extendTo` characters,
+     * so the result may be longer than `extendTo`; a key which is already longer is cut to `extendTo` and shuffled.
+     * Shuffling permutes the whitespace separated words of the key, so a key without whitespace ( like quantum entropy ) is simply repeated.
+     * The copies are written into a single pre-sized array instead of being concatenated.
      *
      * @param k        The original key ( cannot be empty )
      * @param extendTo The key length that we require
      * @returns Expanded Key
      */
   default String expandKey  (String k, int extendTo) {
-    //String key = k.replace("\n$","");
     String key = k.trim();
+    if (key.isEmpty()) {
+      throw new IllegalArgumentException("Key cannot be empty.");
+    }
     if (key.length() > extendTo) {
       return shuffle(key.substring(0, extendTo));
     }
-    String g = key;
-    while (g.length() < extendTo) {
-      g += this.shuffle(key);
+    final int keyLength = key.length();
+    final int copies = (extendTo + keyLength - 1) / keyLength;
+    final char[] expanded = new char[copies * keyLength];
+    key.getChars(0, keyLength, expanded, 0);
+
+    final int[] wordStarts = wordStarts(key);
+    final int[] order = wordStarts == null ? null : new int[wordStarts.length - 1];
+    for (int copy = 1; copy < copies; ++copy) {
+      if (wordStarts == null) {
+        key.getChars(0, keyLength, expanded, copy * keyLength);
+      } else {
+        shuffleWords(key, wordStarts, order, expanded, copy * keyLength);
+      }
+    }
+    return new String(expanded);
+  }
+
+    /**
+     * {@link #expandKey} UTF-8 encoded. A key of ASCII characters without whitespace, like quantum entropy,
+     * is repeated straight into the returned array without building the expanded key as a `String` first.
+     *
+     * @param k        The original key ( cannot be empty )
+     * @param extendTo The key length that we require
+     * @returns Expanded Key, UTF-8 encoded
+     */
+  default byte[] expandKeyBytes(String k, int extendTo) {
+    String key = k.trim();
+    if (key.isEmpty()) {
+      throw new IllegalArgumentException("Key cannot be empty.");
+    }
+    if (key.length() > extendTo || !isAsciiWord(key)) {
+      return expandKey(key, extendTo).getBytes(StandardCharsets.UTF_8);
+    }
+    final byte[] keyBytes = key.getBytes(StandardCharsets.US_ASCII);
+    final byte[] expanded = new byte[(extendTo + keyBytes.length - 1) / keyBytes.length * keyBytes.length];
+    for (int at = 0; at < expanded.length; at += keyBytes.length) {
+      System.arraycopy(keyBytes, 0, expanded, at, keyBytes.length);
+    }
+    return expanded;
+  }
+
+  /**
+   * The whitespace characters {@link #shuffle} splits on ( the regular expression `\s` ).
+   */
+  private static boolean isWordSeparator(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static boolean isAsciiWord(String key) {
+    for (int i = 0; i < key.length(); ++i) {
+      char c = key.charAt(i);
+      if (c >= 0x80 || isWordSeparator(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the start of every word of a trimmed key followed by `key.length() + 1`, or null for a single word.
+   * Consecutive separators enclose empty words, as they do for `split`.
+   */
+  private static int[] wordStarts(String key) {
+    int words = 1;
+    for (int i = 0; i < key.length(); ++i) {
+      if (isWordSeparator(key.charAt(i))) {
+        ++words;
+      }
+    }
+    if (words == 1) {
+      return null;
+    }
+    final int[] starts = new int[words + 1];
+    for (int i = 0, word = 1; i < key.length(); ++i) {
+      if (isWordSeparator(key.charAt(i))) {
+        starts[word++] = i + 1;
+      }
+    }
+    starts[words] = key.length() + 1;
+    return starts;
+  }
+
+  /**
+   * Writes the words of the key in a random order, separated by single spaces, the same as {@link #shuffle} would.
+   */
+  private static void shuffleWords(String key, int[] wordStarts, int[] order, char[] target, int at) {
+    final int n = order.length;
+    for (int i = 0; i < n; ++i) {
+      order[i] = i;
+    }
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = order[i];
+      order[i] = order[j];
+      order[j] = tmp;
+    }
+    for (int i = 0; i < n; ++i) {
+      if (i > 0) {
+        target[at++] = ' ';
+      }
+      final int start = wordStarts[order[i]];
+      final int end = wordStarts[order[i] + 1] - 1;
+      key.getChars(start, end, target, at);
+      at += end - start;
     }
-    return g;
   }
 
 
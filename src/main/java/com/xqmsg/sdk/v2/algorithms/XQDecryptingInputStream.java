@@ -0,0 +1,39 @@
+package com.xqmsg.sdk.v2.algorithms;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decrypts an XQ container lazily, as the caller reads from it.<br>
+ * Closing this stream closes the underlying stream.<br>
+ * Obtain one through `StreamDecrypt`, which reads the locator token and fetches the key first.
+ */
+public class XQDecryptingInputStream extends FilterInputStream {
+
+  private final String locatorToken;
+
+  /**
+   * @param algorithm    the algorithm the container was encrypted with.
+   * @param source       the encrypted container, positioned right after the locator token ( see {@link XQAlgorithm#readLocatorToken} ).
+   * @param locatorToken the locator token read from the container.
+   * @param key          the key retrieved for the locator token.
+   */
+  public XQDecryptingInputStream(XQAlgorithm algorithm, InputStream source, String locatorToken, String key) throws IOException {
+    super(algorithm.decryptingStream(source, key));
+    this.locatorToken = locatorToken;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    return in.read(b, off, len);
+  }
+
+  /**
+   * @return the locator token of this container.
+   */
+  public String getLocatorToken() {
+    return locatorToken;
+  }
+
+}
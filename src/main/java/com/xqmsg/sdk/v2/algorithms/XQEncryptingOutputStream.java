@@ -0,0 +1,42 @@
+package com.xqmsg.sdk.v2.algorithms;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encrypts everything written to it into an XQ container on the underlying stream.<br>
+ * The container header ( locator token and, for OTPv2, the file name ) is written on construction,
+ * so the result is byte for byte what {@link XQAlgorithm#encrypt(java.nio.file.Path, java.nio.file.Path, String, String)} would produce.
+ * Closing this stream finishes the encryption and closes the underlying stream.<br>
+ * Obtain one through `StreamEncrypt`, which fetches the entropy and uploads the key first.
+ */
+public class XQEncryptingOutputStream extends FilterOutputStream {
+
+  private final String locatorToken;
+
+  /**
+   * @param algorithm    the algorithm the key was generated for.
+   * @param target       receives the encrypted container.
+   * @param key          the expanded key, as uploaded to the key server.
+   * @param locatorToken the locator token returned by the key server.
+   * @param fileName     the name embedded in OTPv2 containers; ignored by AES.
+   */
+  public XQEncryptingOutputStream(XQAlgorithm algorithm, OutputStream target, String key, String locatorToken, String fileName) throws IOException {
+    super(algorithm.encryptingStream(target, key, locatorToken, fileName));
+    this.locatorToken = locatorToken;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+  }
+
+  /**
+   * @return the locator token needed to retrieve the key of this container.
+   */
+  public String getLocatorToken() {
+    return locatorToken;
+  }
+
+}
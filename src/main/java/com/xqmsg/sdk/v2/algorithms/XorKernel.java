@@ -0,0 +1,101 @@
+package com.xqmsg.sdk.v2.algorithms;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XORs data with a repeating key, 8 bytes at a time.<br>
+ * The key is laid out once, repeated far enough past its end that the 8 key bytes matching any position can be
+ * read as a single `long` without wrapping; the data is then processed through `long` views,
+ * with a plain byte loop for the remaining tail. The result is identical to the byte-at-a-time loop
+ * <pre>data[x] ^= key[keyIndex]; if (++keyIndex >= key.length) keyIndex = 0;</pre>
+ * An instance holds no mutable state and can be shared between threads.
+ */
+final class XorKernel {
+
+  private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final byte[] key;
+  private final byte[] extendedKey;
+
+  XorKernel(byte[] key) {
+    if (key.length == 0) {
+      throw new IllegalArgumentException("Key cannot be empty.");
+    }
+    this.key = key;
+    this.extendedKey = new byte[key.length + Long.BYTES];
+    for (int i = 0; i < extendedKey.length; ++i) {
+      extendedKey[i] = key[i % key.length];
+    }
+  }
+
+  int keyLength() {
+    return key.length;
+  }
+
+  /**
+   * XORs `src[srcOff..srcOff+len)` into `dst[dstOff..)`. The ranges may be the same ( in place ).
+   *
+   * @param keyIndex the key position matching the first byte.
+   * @return the key position following the last byte.
+   */
+  int apply(byte[] src, int srcOff, byte[] dst, int dstOff, int len, int keyIndex) {
+    final int keyLength = key.length;
+    int x = 0;
+    for (; x <= len - Long.BYTES; x += Long.BYTES) {
+      long k = (long) ARRAY_LONG.get(extendedKey, keyIndex);
+      ARRAY_LONG.set(dst, dstOff + x, (long) ARRAY_LONG.get(src, srcOff + x) ^ k);
+      keyIndex += Long.BYTES;
+      while (keyIndex >= keyLength) keyIndex -= keyLength;
+    }
+    for (; x < len; ++x) {
+      dst[dstOff + x] = (byte) (src[srcOff + x] ^ key[keyIndex]);
+      if (++keyIndex >= keyLength) keyIndex = 0;
+    }
+    return keyIndex;
+  }
+
+  /**
+   * In-place variant of {@link #apply(byte[], int, byte[], int, int, int)}.
+   */
+  int apply(byte[] data, int off, int len, int keyIndex) {
+    return apply(data, off, data, off, len, keyIndex);
+  }
+
+  /**
+   * XORs the remaining bytes of `src` into `dst`, advancing both positions. `dst` must have room for them.
+   * Heap buffers are processed through their backing arrays, direct buffers through `long` views of the buffers.
+   *
+   * @return the key position following the last byte.
+   */
+  int apply(ByteBuffer src, ByteBuffer dst, int keyIndex) {
+    final int len = src.remaining();
+    final int srcPos = src.position();
+    final int dstPos = dst.position();
+
+    if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+      keyIndex = apply(src.array(), src.arrayOffset() + srcPos, dst.array(), dst.arrayOffset() + dstPos, len, keyIndex);
+    } else {
+      final int keyLength = key.length;
+      int x = 0;
+      for (; x <= len - Long.BYTES; x += Long.BYTES) {
+        long k = (long) ARRAY_LONG.get(extendedKey, keyIndex);
+        BUFFER_LONG.set(dst, dstPos + x, (long) BUFFER_LONG.get(src, srcPos + x) ^ k);
+        keyIndex += Long.BYTES;
+        while (keyIndex >= keyLength) keyIndex -= keyLength;
+      }
+      for (; x < len; ++x) {
+        dst.put(dstPos + x, (byte) (src.get(srcPos + x) ^ key[keyIndex]));
+        if (++keyIndex >= keyLength) keyIndex = 0;
+      }
+    }
+
+    src.position(srcPos + len);
+    dst.position(dstPos + len);
+    return keyIndex;
+  }
+
+}
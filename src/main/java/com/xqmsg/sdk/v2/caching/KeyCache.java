@@ -0,0 +1,177 @@
+package com.xqmsg.sdk.v2.caching;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An in-memory cache of encryption keys retrieved by `FetchKey`, keyed by locator token and profile.<br>
+ * It holds at most `maxEntries` keys, evicting the least recently used one first, and every entry expires
+ * after its own time-to-live, which is never longer than the key's remaining lifetime on the server.<br>
+ * It is opt-in: enable it with `com.xq-msg.sdk.v2.key-cache.enabled=true`.<br>
+ * A key is fetched before it is cached, so callers take a {@link #generation()} before fetching and hand it to `put`;
+ * a key whose locator token was invalidated in between is dropped instead of being cached again.
+ * Keys uploaded with delete-on-receipt are never cached at all, see {@link #exclude(String)}.
+ */
+public class KeyCache {
+
+  private final int maxEntries;
+  private final long ttlMillis;
+
+  private final LinkedHashMap<Entry, CachedKey> entries;
+  private final LinkedHashMap<String, Long> invalidatedAt;
+  private final LinkedHashMap<String, Boolean> excluded;
+
+  private long clock;
+  private long floor;
+
+  /**
+   * @param maxEntries the maximum number of keys held at any one time.
+   * @param ttlMillis  the longest time a key is kept, regardless of its expiration on the server.
+   */
+  public KeyCache(int maxEntries, long ttlMillis) {
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<KeyCache.Entry, CachedKey> eldest) {
+        return size() > KeyCache.this.maxEntries;
+      }
+    };
+    this.invalidatedAt = new LinkedHashMap<>(16, 0.75f, false) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        if (size() > KeyCache.this.maxEntries) {
+          // forgetting when a locator was invalidated must not let a stale put through
+          floor = Math.max(floor, eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+    this.excluded = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > KeyCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @return the current generation, to be taken before a key is fetched and passed to
+   * {@link #put(String, String, String, long, long)} once it arrives.
+   */
+  public synchronized long generation() {
+    return clock;
+  }
+
+  /**
+   * @return the cached key, or null if there is none or it has expired.
+   */
+  public synchronized String get(String locatorToken, String profile) {
+    Entry entry = new Entry(locatorToken, profile);
+    CachedKey cachedKey = entries.get(entry);
+    if (cachedKey == null) {
+      return null;
+    }
+    if (cachedKey.expiresAt <= System.currentTimeMillis()) {
+      entries.remove(entry);
+      return null;
+    }
+    return cachedKey.key;
+  }
+
+  /**
+   * @param expiresInMillis the remaining lifetime of the key as reported by the server.
+   *                        The entry is kept for the shorter of this and the configured time-to-live;
+   *                        keys which have already expired are not cached.
+   * @param generation      the {@link #generation()} taken before the key was fetched.
+   * @return true if the key was cached, false if it expired, is excluded or was invalidated since `generation`.
+   */
+  public synchronized boolean put(String locatorToken, String profile, String key, long expiresInMillis, long generation) {
+    long keepFor = Math.min(ttlMillis, expiresInMillis);
+    if (keepFor <= 0 || excluded.containsKey(locatorToken)) {
+      return false;
+    }
+    if (generation < floor || generation < invalidatedAt.getOrDefault(locatorToken, 0L)) {
+      return false;
+    }
+    entries.put(new Entry(locatorToken, profile), new CachedKey(key, System.currentTimeMillis() + keepFor));
+    return true;
+  }
+
+  /**
+   * Marks a locator token whose key is deleted on receipt: it is removed now and never cached afterwards.
+   */
+  public synchronized void exclude(String locatorToken) {
+    excluded.put(locatorToken, Boolean.TRUE);
+    invalidate(locatorToken);
+  }
+
+  /**
+   * Removes the key for a single profile.
+   */
+  public synchronized void invalidate(String locatorToken, String profile) {
+    entries.remove(new Entry(locatorToken, profile));
+    invalidatedAt.remove(locatorToken);
+    invalidatedAt.put(locatorToken, ++clock);
+  }
+
+  /**
+   * Removes the key of the given locator token for every profile.
+   */
+  public synchronized void invalidate(String locatorToken) {
+    Iterator<Entry> iterator = entries.keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().locatorToken.equals(locatorToken)) {
+        iterator.remove();
+      }
+    }
+    invalidatedAt.remove(locatorToken);
+    invalidatedAt.put(locatorToken, ++clock);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    floor = ++clock;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private static final class Entry {
+    final String locatorToken;
+    final String profile;
+
+    Entry(String locatorToken, String profile) {
+      this.locatorToken = locatorToken;
+      this.profile = profile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Entry)) return false;
+      Entry that = (Entry) o;
+      return locatorToken.equals(that.locatorToken) && Objects.equals(profile, that.profile);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(locatorToken, profile);
+    }
+  }
+
+  private static final class CachedKey {
+    final String key;
+    final long expiresAt;
+
+    CachedKey(String key, long expiresAt) {
+      this.key = key;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
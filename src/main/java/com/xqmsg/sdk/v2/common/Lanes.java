@@ -0,0 +1,61 @@
+package com.xqmsg.sdk.v2.common;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Works through a list with a fixed number of lanes.<br>
+ * Each lane takes the next item not yet taken by another lane, starts its task and,
+ * once that task has completed, moves on to the item after, until none are left.
+ * So no more than `lanes` tasks are ever in flight, and no thread waits for one of them.
+ */
+public final class Lanes {
+
+    private Lanes() {
+    }
+
+    /**
+     * @param items    the items to work through, in the order they are taken.
+     * @param lanes    the maximum number of tasks in flight at the same time.
+     * @param task     starts the work for one item. Its outcome is not looked at, so it has to deal with its own failures.
+     * @param executor runs the step from a completed task to the next item.
+     * @return a future completed once the task of every item has completed.
+     */
+    public static <T> CompletableFuture<Void> drain(List<T> items, int lanes, Function<T, CompletableFuture<?>> task, Executor executor) {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        if (items.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger(items.size());
+        for (int lane = 0; lane < Math.min(Math.max(1, lanes), items.size()); ++lane) {
+            next(items, task, executor, next, remaining, done);
+        }
+        return done;
+    }
+
+    private static <T> void next(List<T> items, Function<T, CompletableFuture<?>> task, Executor executor,
+                                 AtomicInteger next, AtomicInteger remaining, CompletableFuture<Void> done) {
+        final int i = next.getAndIncrement();
+        if (i >= items.size()) {
+            return;
+        }
+        CompletableFuture<?> running;
+        try {
+            running = task.apply(items.get(i));
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenCompleteAsync((result, e) -> {
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+            next(items, task, executor, next, remaining, done);
+        }, executor);
+    }
+
+}
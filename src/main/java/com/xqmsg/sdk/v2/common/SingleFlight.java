@@ -0,0 +1,69 @@
+package com.xqmsg.sdk.v2.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls.<br>
+ * While a call for a given key is in flight, further calls with the same key do not start a new request;
+ * they are completed with the result of the one already running.
+ * Once that call completes the key is released, so later calls go to the server again.
+ *
+ * @param <K> the key identifying identical calls.
+ * @param <V> the result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param key  identifies the call.
+     * @param call starts the call; it is only invoked if no call with the same key is in flight.
+     * @return a future completed with the shared result. Each caller receives its own copy,
+     * so completing or cancelling it does not affect the other callers.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+
+        final CompletableFuture<V> leader = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, leader);
+
+        if (running != null) {
+            coalesced.increment();
+            return running.copy();
+        }
+
+        try {
+            call.get().whenComplete((result, throwable) -> {
+                inFlight.remove(key, leader);
+                if (throwable != null) {
+                    leader.completeExceptionally(throwable);
+                } else {
+                    leader.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+        }
+
+        return leader.copy();
+    }
+
+    /**
+     * @return the number of calls which were served by an already running call instead of going to the server.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of distinct calls currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+}
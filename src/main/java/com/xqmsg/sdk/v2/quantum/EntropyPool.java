@@ -0,0 +1,249 @@
+package com.xqmsg.sdk.v2.quantum;
+
+import com.xqmsg.sdk.v2.CallStatus;
+import com.xqmsg.sdk.v2.ServerResponse;
+import com.xqmsg.sdk.v2.XQSDK;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A buffer of quantum entropy, prefetched in the background so that `Encrypt` and `FileEncrypt`
+ * do not have to wait for the quantum server before they can start.<br>
+ * Entropy is fetched in large blocks and handed out in 256 bit slices, each in the same form
+ * as a regular {@link FetchQuantumEntropy} response ( a base64-encoded hex string ). Every slice is handed out once.<br>
+ * Whenever the number of buffered slices drops below the low watermark, blocks are fetched until it reaches
+ * the high watermark. If the pool is empty, {@link #take()} falls back to a regular {@link FetchQuantumEntropy} call.<br>
+ * After a failed refill no new refill is started until a backoff delay has passed, doubling with every further failure,
+ * so a failing server only sees the fallback calls of the callers themselves.<br>
+ * The pool starts filling on first use.
+ */
+public class EntropyPool {
+
+  private static final Logger logger = Logger.getLogger(EntropyPool.class.getName());
+
+  /**
+   * The number of hex characters in a 256 bit slice.
+   */
+  private static final int SLICE_LENGTH = 64;
+
+  public static final long DEFAULT_MIN_BACKOFF_MILLIS = 1_000;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60_000;
+
+  private final XQSDK sdk;
+  private final int lowWatermark;
+  private final int highWatermark;
+  private final int blockBits;
+  private final long minBackoffNanos;
+  private final long maxBackoffNanos;
+
+  private final ConcurrentLinkedQueue<String> slices = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final AtomicBoolean refilling = new AtomicBoolean();
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicLong nextRefillNanos = new AtomicLong(System.nanoTime());
+
+  private final AtomicLong refills = new AtomicLong();
+  private final AtomicLong failedRefills = new AtomicLong();
+  private final AtomicLong totalRefillNanos = new AtomicLong();
+  private final AtomicLong lastRefillNanos = new AtomicLong();
+  private final AtomicLong fallbacks = new AtomicLong();
+
+  /**
+   * @param sdk           App Settings
+   * @param lowWatermark  the depth below which a refill is started.
+   * @param highWatermark the depth at which a refill stops.
+   * @param blockBits     the number of entropy bits requested from the server per refill call.
+   */
+  public EntropyPool(XQSDK sdk, int lowWatermark, int highWatermark, int blockBits) {
+    this(sdk, lowWatermark, highWatermark, blockBits, DEFAULT_MIN_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+  }
+
+  /**
+   * @param sdk              App Settings
+   * @param lowWatermark     the depth below which a refill is started.
+   * @param highWatermark    the depth at which a refill stops.
+   * @param blockBits        the number of entropy bits requested from the server per refill call.
+   * @param minBackoffMillis the delay before the next refill after a first failed one.
+   * @param maxBackoffMillis the longest delay between refills, however many have failed in a row.
+   */
+  public EntropyPool(XQSDK sdk, int lowWatermark, int highWatermark, int blockBits, long minBackoffMillis, long maxBackoffMillis) {
+    assert sdk != null : "An instance of the XQSDK is required";
+    assert lowWatermark <= highWatermark : "lowWatermark cannot exceed highWatermark";
+    assert minBackoffMillis <= maxBackoffMillis : "minBackoffMillis cannot exceed maxBackoffMillis";
+    this.sdk = sdk;
+    this.lowWatermark = lowWatermark;
+    this.highWatermark = highWatermark;
+    this.blockBits = blockBits;
+    this.minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minBackoffMillis));
+    this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxBackoffMillis));
+  }
+
+  /**
+   * @returns CompletableFuture&lt;ServerResponse#payload:{data:String}>>, the same as {@link FetchQuantumEntropy}.
+   * Completes immediately when the pool holds entropy.
+   */
+  public CompletableFuture<ServerResponse> take() {
+    String slice = slices.poll();
+    if (slice != null) {
+      depth.decrementAndGet();
+    }
+    refillIfLow();
+    if (slice != null) {
+      return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, slice)));
+    }
+    fallbacks.incrementAndGet();
+    return fetch(Optional.empty());
+  }
+
+  /**
+   * Calls {@link FetchQuantumEntropy}, for both the refills and the fallbacks.
+   */
+  protected CompletableFuture<ServerResponse> fetch(Optional<Map<String, Object>> maybeArgs) {
+    return FetchQuantumEntropy.with(sdk).supplyAsync(maybeArgs);
+  }
+
+  private void refillIfLow() {
+    if (depth.get() < lowWatermark
+            && System.nanoTime() - nextRefillNanos.get() >= 0
+            && refilling.compareAndSet(false, true)) {
+      refill();
+    }
+  }
+
+  private void refill() {
+    final long start = System.nanoTime();
+    fetch(Optional.of(Map.of(FetchQuantumEntropy.KS, String.valueOf(blockBits))))
+            .whenComplete((response, throwable) -> {
+              long elapsed = System.nanoTime() - start;
+              int added = 0;
+              if (throwable == null && response.status == CallStatus.Ok) {
+                added = addSlices((String) response.payload.get(ServerResponse.DATA));
+              }
+              if (added > 0) {
+                refills.incrementAndGet();
+                totalRefillNanos.addAndGet(elapsed);
+                lastRefillNanos.set(elapsed);
+                consecutiveFailures.set(0);
+              } else {
+                failedRefills.incrementAndGet();
+                long backoff = backoffNanos(consecutiveFailures.incrementAndGet());
+                nextRefillNanos.set(System.nanoTime() + backoff);
+                logger.warning(String.format("Entropy refill failed, next refill in %d ms: %s",
+                        TimeUnit.NANOSECONDS.toMillis(backoff), throwable != null ? throwable : response.moreInfo()));
+              }
+              if (added > 0 && depth.get() < highWatermark) {
+                refill();
+              } else {
+                refilling.set(false);
+              }
+            });
+  }
+
+  /**
+   * @return the delay before the next refill after `failures` failed ones in a row:
+   * the minimum backoff, doubled for every failure after the first, up to the maximum backoff.
+   */
+  private long backoffNanos(int failures) {
+    int doublings = Math.min(failures - 1, Long.numberOfLeadingZeros(Math.max(1, minBackoffNanos)) - 1);
+    return Math.min(maxBackoffNanos, minBackoffNanos << doublings);
+  }
+
+  /**
+   * Splits a block into 256 bit slices and adds them to the pool.
+   *
+   * @return the number of slices added.
+   */
+  private int addSlices(String block) {
+    List<String> added = slice(block);
+    slices.addAll(added);
+    depth.addAndGet(added.size());
+    return added.size();
+  }
+
+  /**
+   * Splits a {@link FetchQuantumEntropy} response of any size into 256 bit slices, each in the form of a regular 256 bit response.
+   * Any remainder shorter than a slice is discarded.
+   *
+   * @return the slices, empty if the block is not valid.
+   */
+  public static List<String> slice(String block) {
+    if (block == null) {
+      return List.of();
+    }
+    final String hex;
+    try {
+      hex = new String(Base64.getDecoder().decode(block.trim()), StandardCharsets.US_ASCII).trim();
+    } catch (IllegalArgumentException e) {
+      return List.of();
+    }
+    Base64.Encoder encoder = Base64.getEncoder();
+    List<String> slices = new ArrayList<>(hex.length() / SLICE_LENGTH);
+    for (int i = 0; i + SLICE_LENGTH <= hex.length(); i += SLICE_LENGTH) {
+      slices.add(encoder.encodeToString(hex.substring(i, i + SLICE_LENGTH).getBytes(StandardCharsets.US_ASCII)));
+    }
+    return slices;
+  }
+
+  /**
+   * @return the number of 256 bit slices currently buffered.
+   */
+  public int depth() {
+    return depth.get();
+  }
+
+  /**
+   * @return the number of successful refill calls.
+   */
+  public long refillCount() {
+    return refills.get();
+  }
+
+  /**
+   * @return the number of refill calls which returned no usable entropy.
+   */
+  public long failedRefillCount() {
+    return failedRefills.get();
+  }
+
+  /**
+   * @return the number of refill calls which have failed since the last successful one.
+   */
+  public int consecutiveFailedRefillCount() {
+    return consecutiveFailures.get();
+  }
+
+  /**
+   * @return the duration of the most recent successful refill call in milliseconds.
+   */
+  public long lastRefillLatencyMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(lastRefillNanos.get());
+  }
+
+  /**
+   * @return the average duration of the successful refill calls in milliseconds.
+   */
+  public long averageRefillLatencyMillis() {
+    long count = refills.get();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRefillNanos.get() / count);
+  }
+
+  /**
+   * @return the number of times {@link #take()} found the pool empty and went to the server.
+   */
+  public long fallbackCount() {
+    return fallbacks.get();
+  }
+
+}
@@ -56,15 +56,12 @@ public class FetchQuantumEntropy extends XQModule {
   @Override
   public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
-    return CompletableFuture.supplyAsync (() -> {
-
-      return sdk.call(sdk.KEY_SERVER_URL,
-              Optional.empty(),
-              CallMethod.Get,
-              Optional.empty(),
-              Optional.of(Destination.XQ),
-              Optional.of(maybeArgs.orElse(Map.of(KS, _256))));
-    });
+    return sdk.callAsync(sdk.KEY_SERVER_URL,
+            Optional.empty(),
+            CallMethod.Get,
+            Optional.empty(),
+            Optional.of(Destination.XQ),
+            Optional.of(maybeArgs.orElse(Map.of(KS, _256))));
   }
 
   @Override
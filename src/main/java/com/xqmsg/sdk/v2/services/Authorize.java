@@ -71,31 +71,31 @@ public class Authorize extends XQModule {
     @Override
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
         try {
-            return CompletableFuture.completedFuture(
-                    validate
-                            .andThen((result) -> {
-                                ServerResponse serverResponse = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
-                                        Optional.of(SERVICE_NAME),
-                                        CallMethod.Post,
-                                        Optional.empty(),
-                                        Optional.of(Destination.XQ),
-                                        result);
-
-                                Map<String, Object> inputArguments = result.get();
-                                String user = (String) inputArguments.get(USER);
-
-                                switch (serverResponse.status) {
-                                    case Ok: {
-                                        String temporaryAccessToken = (String) serverResponse.payload.get(ServerResponse.DATA);
-                                        cache.putXQPreAuthToken(user, temporaryAccessToken);
-                                        cache.putActiveProfile(user);
-                                    }
-                                    default: {
-                                        return serverResponse;
+            return validate
+                    .andThen((result) -> {
+                        Map<String, Object> inputArguments = result.get();
+                        String user = (String) inputArguments.get(USER);
+
+                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
+                                Optional.of(SERVICE_NAME),
+                                CallMethod.Post,
+                                Optional.empty(),
+                                Optional.of(Destination.XQ),
+                                result)
+                                .thenApply((serverResponse) -> {
+                                    switch (serverResponse.status) {
+                                        case Ok: {
+                                            String temporaryAccessToken = (String) serverResponse.payload.get(ServerResponse.DATA);
+                                            cache.putXQPreAuthToken(user, temporaryAccessToken);
+                                            cache.putActiveProfile(user);
+                                        }
+                                        default: {
+                                            return serverResponse;
+                                        }
                                     }
-                                }
-                            })
-                            .apply(maybeArgs));
+                                });
+                    })
+                    .apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -63,32 +63,32 @@ public class AuthorizeAlias extends XQModule {
     @Override
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
         try {
-            return CompletableFuture.completedFuture(
-                    validate.andThen(
-                            (validatedArgs) -> {
-                                ServerResponse response = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
-                                        Optional.of(SERVICE_NAME),
-                                        CallMethod.Post,
-                                        Optional.empty(),
-                                        Optional.of(Destination.XQ),
-                                        validatedArgs);
-
-                                String aliasUser = (String) validatedArgs.get().get(AuthorizeAlias.USER);
-
-                                switch (response.status) {
-                                    case Ok: {
-                                        String accessToken = (String) response.payload.get("data");
-
-                                        cache.putXQAccess(aliasUser, accessToken);
-                                        return response;
+            return validate.andThen(
+                    (validatedArgs) -> {
+                        String aliasUser = (String) validatedArgs.get().get(AuthorizeAlias.USER);
+
+                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
+                                Optional.of(SERVICE_NAME),
+                                CallMethod.Post,
+                                Optional.empty(),
+                                Optional.of(Destination.XQ),
+                                validatedArgs)
+                                .thenApply((response) -> {
+                                    switch (response.status) {
+                                        case Ok: {
+                                            String accessToken = (String) response.payload.get("data");
+
+                                            cache.putXQAccess(aliasUser, accessToken);
+                                            return response;
+                                        }
+                                        default: {
+                                            logger.warning(String.format("failed , reason: %s", response.moreInfo()));
+                                            return response;
+                                        }
                                     }
-                                    default: {
-                                        logger.warning(String.format("failed , reason: %s", response.moreInfo()));
-                                        return response;
-                                    }
-                                }
-                            })
-                            .apply(maybeArgs));
+                                });
+                    })
+                    .apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -58,14 +58,12 @@ public class AuthorizeDelegate extends XQModule {
                             return authorize
                                     .andThen((authorizationToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", authorizationToken));
-                                        return CompletableFuture.completedFuture(
-                                                sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
-                                                        Optional.of(SERVICE_NAME),
-                                                        CallMethod.Get,
-                                                        Optional.of(headerProperties),
-                                                        Optional.of(Destination.XQ),
-                                                        maybeArgs)
-                                        );
+                                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
+                                                Optional.of(SERVICE_NAME),
+                                                CallMethod.Get,
+                                                Optional.of(headerProperties),
+                                                Optional.of(Destination.XQ),
+                                                maybeArgs);
                                     })
                                     .apply(Optional.of(Destination.XQ), validated);
 
@@ -0,0 +1,137 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Decrypts many texts in one go using the {@link AlgorithmEnum} provided.<br>
+ * The result of each item is the same as that of {@link Decrypt}, but the request is validated and authorized once,
+ * and each distinct key is fetched once, no matter how many items share its locator token.
+ * Keys are fetched a bounded number at a time, and every item is decrypted as soon as its key arrives.
+ */
+public class BatchDecrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String ITEMS = "items";
+    public static final String PARALLELISM = "parallelism";
+
+    public static final String LOCATOR_TOKEN = Decrypt.LOCATOR_TOKEN;
+    public static final String ENCRYPTED_TEXT = Decrypt.ENCRYPTED_TEXT;
+
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    private final AlgorithmEnum algorithm;
+
+    private BatchDecrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(ITEMS);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static BatchDecrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new BatchDecrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  List<Map> items! - The messages to decrypt, each a map of:<br>
+     *                  &nbsp;&nbsp;String locatorToken! - The locator token of the message key.<br>
+     *                  &nbsp;&nbsp;String encryptedText! - The encrypted text.<br>
+     *                  Integer parallelism? [8] - The maximum number of keys fetched at the same time.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:List&lt;ServerResponse#payload:{data:String}>}>,
+     * one response per item, in input order.
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeValid.get();
+                                        @SuppressWarnings("unchecked")
+                                        final List<Map<String, Object>> items = (List<Map<String, Object>>) args.get(ITEMS);
+                                        final int parallelism = Math.max(1, (Integer) args.getOrDefault(PARALLELISM, DEFAULT_PARALLELISM));
+                                        final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+
+                                        // one key fetch per distinct locator token, in order of first appearance
+                                        final Map<String, CompletableFuture<ServerResponse>> keys = FetchKey.with(sdk).fetchAll(
+                                                items.stream().map((item) -> (String) item.get(LOCATOR_TOKEN)).filter(Objects::nonNull).collect(Collectors.toList()),
+                                                authorizationToken, parallelism);
+
+                                        List<CompletableFuture<ServerResponse>> results = new ArrayList<>(items.size());
+                                        for (Map<String, Object> item : items) {
+                                            final String locatorToken = (String) item.get(LOCATOR_TOKEN);
+                                            final String encryptedText = (String) item.get(ENCRYPTED_TEXT);
+                                            if (locatorToken == null || encryptedText == null) {
+                                                results.add(CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.MissingParameters,
+                                                        String.format("Required: %s", asList(LOCATOR_TOKEN, ENCRYPTED_TEXT)))));
+                                                continue;
+                                            }
+                                            results.add(keys.get(locatorToken)
+                                                    .thenCompose((keyRetrievalResponse) -> {
+                                                        switch (keyRetrievalResponse.status) {
+                                                            case Ok: {
+                                                                final String encryptionKey = (String) keyRetrievalResponse.payload.get(ServerResponse.DATA);
+                                                                return algorithm.decrypt(encryptedText, encryptionKey);
+                                                            }
+                                                            default: {
+                                                                return CompletableFuture.completedFuture(keyRetrievalResponse);
+                                                            }
+                                                        }
+                                                    })
+                                                    .handle((response, e) -> e == null && response != null
+                                                            ? response
+                                                            : new ServerResponse(CallStatus.Error, Reasons.DecryptionFailed, e != null ? e.getMessage() : "Decryption failed.")));
+                                        }
+
+                                        return CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new))
+                                                .thenApply((ignored) -> new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,
+                                                        results.stream().map(CompletableFuture::join).collect(Collectors.toList()))));
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    @Override
+    public String moduleName() {
+        return "BatchDecrypt";
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.common.Lanes;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
+import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Encrypts many texts in one go using the {@link AlgorithmEnum} provided.<br>
+ * The result of each item is the same as that of {@link Encrypt}, but the work shared between them is done once:
+ * the request is validated and authorized once, the entropy for all items is fetched in a single call,
+ * and the keys are uploaded with the same authorization token, a bounded number at a time.
+ */
+public class BatchEncrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String USER = "user";
+    public static final String ITEMS = "items";
+    public static final String CONCURRENCY = "concurrency";
+
+    public static final String TEXT = Encrypt.TEXT;
+    public static final String RECIPIENTS = Encrypt.RECIPIENTS;
+    public static final String DELETE_ON_RECEIPT = Encrypt.DELETE_ON_RECEIPT;
+    public static final String MESSAGE_EXPIRATION_HOURS = Encrypt.MESSAGE_EXPIRATION_HOURS;
+
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int SLICE_BITS = 256;
+
+    private final AlgorithmEnum algorithm;
+
+    private BatchEncrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(USER, ITEMS);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static BatchEncrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new BatchEncrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  String user! - Email of the validated user and author of the messages.<br>
+     *                  List<Map> items! - The messages to encrypt, each a map of:<br>
+     *                  &nbsp;&nbsp;String text! - Text to be encrypted.<br>
+     *                  &nbsp;&nbsp;List<String> recipients! - List of emails of users intended to have read access to the encrypted content.<br>
+     *                  &nbsp;&nbsp;Long expires! - The number of hours that this key will remain valid for.<br>
+     *                  &nbsp;&nbsp;Boolean dor? [false] - Should the content be deleted after opening.<br>
+     *                  Integer concurrency? [8] - The maximum number of keys uploaded at the same time.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:List&lt;ServerResponse#payload:{locatorKey:string, encryptedText:string}>}>,
+     * one response per item, in input order.
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeArgs.get();
+                                        @SuppressWarnings("unchecked")
+                                        final List<Map<String, Object>> items = (List<Map<String, Object>>) args.get(ITEMS);
+                                        final int concurrency = Math.max(1, (Integer) args.getOrDefault(CONCURRENCY, DEFAULT_CONCURRENCY));
+                                        final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+
+                                        if (items.isEmpty()) {
+                                            return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, List.of())));
+                                        }
+
+                                        return fetchEntropy(items.size(), new ArrayList<>())
+                                                .thenCompose((entropy) -> {
+                                                    // every item is encrypted right away, the uploads are drained by a fixed number of lanes
+                                                    List<CompletableFuture<ServerResponse>> encryptions = new ArrayList<>(items.size());
+                                                    List<CompletableFuture<ServerResponse>> uploads = new ArrayList<>(items.size());
+                                                    List<String> expandedKeys = new ArrayList<>(items.size());
+                                                    for (int i = 0; i < items.size(); ++i) {
+                                                        Map<String, Object> item = items.get(i);
+                                                        String text = (String) item.get(TEXT);
+                                                        if (text == null || item.get(RECIPIENTS) == null || item.get(MESSAGE_EXPIRATION_HOURS) == null) {
+                                                            encryptions.add(CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.MissingParameters,
+                                                                    String.format("Required: %s", asList(TEXT, RECIPIENTS, MESSAGE_EXPIRATION_HOURS)))));
+                                                            expandedKeys.add(null);
+                                                        } else if (i >= entropy.size()) {
+                                                            encryptions.add(CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.InvalidQuantumKey,
+                                                                    "Not enough entropy was returned for this item.")));
+                                                            expandedKeys.add(null);
+                                                        } else {
+                                                            String expandedKey = algorithm.expandKey(entropy.get(i), text.length() > 4096 ? 4096 : Math.max(2048, text.length()));
+                                                            encryptions.add(algorithm.encrypt(text, expandedKey));
+                                                            expandedKeys.add(expandedKey);
+                                                        }
+                                                        uploads.add(new CompletableFuture<>());
+                                                    }
+
+                                                    // items which already failed have nothing to upload
+                                                    List<Integer> pending = new ArrayList<>(items.size());
+                                                    for (int i = 0; i < items.size(); ++i) {
+                                                        if (expandedKeys.get(i) == null) {
+                                                            uploads.get(i).complete(null);
+                                                        } else {
+                                                            pending.add(i);
+                                                        }
+                                                    }
+                                                    Lanes.drain(pending, concurrency,
+                                                            (i) -> upload(authorizationToken, algorithm, items.get(i), expandedKeys.get(i), uploads.get(i)),
+                                                            sdk.getIoExecutor());
+
+                                                    List<CompletableFuture<ServerResponse>> results = new ArrayList<>(items.size());
+                                                    for (int i = 0; i < items.size(); ++i) {
+                                                        results.add(encryptions.get(i)
+                                                                .handle((response, e) -> e == null && response != null
+                                                                        ? response
+                                                                        : new ServerResponse(CallStatus.Error, Reasons.EncryptionFailed, e != null ? e.getMessage() : "Encryption failed."))
+                                                                .thenCombine(uploads.get(i), BatchEncrypt::combine));
+                                                    }
+                                                    return CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new))
+                                                            .thenApply((ignored) -> new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA,
+                                                                    results.stream().map(CompletableFuture::join).collect(Collectors.toList()))));
+                                                })
+                                                .exceptionally((e) -> {
+                                                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                                                    logger.warning(String.valueOf(cause.getMessage()));
+                                                    return new ServerResponse(CallStatus.Error, Reasons.InternalException, cause.getMessage());
+                                                });
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    /**
+     * Fetches at least `count` 256 bit slices of entropy, asking for all of them in one call
+     * and only calling again if the server returned fewer.
+     * Stops short if a call returns nothing; the items left without entropy are then reported as failed.
+     */
+    private CompletableFuture<List<String>> fetchEntropy(int count, List<String> entropy) {
+        final int missing = count - entropy.size();
+        return FetchQuantumEntropy.with(sdk)
+                .supplyAsync(Optional.of(Map.of(FetchQuantumEntropy.KS, String.valueOf(missing * SLICE_BITS))))
+                .thenCompose((response) -> {
+                    List<String> slices = response.status == CallStatus.Ok
+                            ? EntropyPool.slice((String) response.payload.get(ServerResponse.DATA))
+                            : List.of();
+                    if (slices.isEmpty()) {
+                        logger.warning(String.format("failed to fetch entropy, reason: %s", response.moreInfo()));
+                        return CompletableFuture.completedFuture(entropy);
+                    }
+                    entropy.addAll(slices.subList(0, Math.min(missing, slices.size())));
+                    return entropy.size() < count
+                            ? fetchEntropy(count, entropy)
+                            : CompletableFuture.completedFuture(entropy);
+                });
+    }
+
+    /**
+     * Uploads the expanded key of one item, completing `upload` with the server response.
+     */
+    private CompletableFuture<?> upload(String authorizationToken, XQAlgorithm algorithm, Map<String, Object> item, String expandedKey,
+                                        CompletableFuture<ServerResponse> upload) {
+        final boolean deleteOnReceipt = item.get(DELETE_ON_RECEIPT) != null && (boolean) item.getOrDefault(DELETE_ON_RECEIPT, false);
+        return UploadKey.with(sdk)
+                .upload(Map.of(
+                        UploadKey.KEY, algorithm.prefix() + expandedKey,
+                        UploadKey.RECIPIENTS, ((List<?>) item.get(RECIPIENTS)).stream().map(String::valueOf).collect(Collectors.joining(",")),
+                        UploadKey.MESSAGE_EXPIRATION_HOURS, item.get(MESSAGE_EXPIRATION_HOURS),
+                        UploadKey.DELETE_ON_RECEIPT, deleteOnReceipt), authorizationToken)
+                .whenComplete((response, e) -> upload.complete(e == null
+                        ? response
+                        : new ServerResponse(CallStatus.Error, Reasons.LocalException, e.getMessage())));
+    }
+
+    /**
+     * The same result as {@link Encrypt}: encryption errors first, then upload errors.
+     */
+    private static ServerResponse combine(ServerResponse encryptServerResponse, ServerResponse validateResponse) {
+        if (encryptServerResponse.status != CallStatus.Ok) {
+            return encryptServerResponse;
+        }
+        switch (validateResponse.status) {
+            case Ok: {
+                final Object encrypted = encryptServerResponse.payload.get(ServerResponse.DATA);
+                final String encryptedText = encrypted instanceof byte[]
+                        ? new String((byte[]) encrypted, StandardCharsets.UTF_8)
+                        : (String) encrypted;
+                final String locator = (String) validateResponse.payload.get(ServerResponse.DATA);
+                return new ServerResponse(CallStatus.Ok, Map.of(Encrypt.LOCATOR_KEY, locator, Encrypt.ENCRYPTED_TEXT, encryptedText));
+            }
+            default: {
+                return validateResponse;
+            }
+        }
+    }
+
+    @Override
+    public String moduleName() {
+        return "BatchEncrypt";
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.common.Lanes;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Decrypts every encrypted file of a directory tree using the {@link AlgorithmEnum} provided; the counterpart of {@link BulkFileEncrypt}.<br>
+ * The headers of all files are scanned first, reading only the length prefixed locator token of each.
+ * The distinct keys are then fetched a bounded number at a time, while a bounded number of files are decrypted:
+ * each file as soon as its key has arrived, so the key retrieval and the disk work overlap instead of alternating.<br>
+ * Each file is decrypted into the same relative path under the target directory, with the `.xqf` suffix removed.
+ */
+public class BulkFileDecrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String SOURCE_DIRECTORY = "sourceDirectory";
+    public static final String TARGET_DIRECTORY = "targetDirectory";
+    public static final String PARALLELISM = "parallelism";
+    public static final String MAX_FETCHES = "maxFetches";
+
+    public static final String FAILURES = BulkFileEncrypt.FAILURES;
+
+    private static final int DEFAULT_MAX_FETCHES = 8;
+
+    /**
+     * Enough to hold the length prefix and any valid locator token.
+     */
+    private static final int HEADER_BUFFER_SIZE = 512;
+
+    private final AlgorithmEnum algorithm;
+
+    private BulkFileDecrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(SOURCE_DIRECTORY, TARGET_DIRECTORY);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static BulkFileDecrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new BulkFileDecrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  Path sourceDirectory! - The directory whose `.xqf` files are decrypted, including those of its subdirectories.<br>
+     *                  Path targetDirectory! - The directory the decrypted files are written to. Created if it does not exist.<br>
+     *                  Integer parallelism? [available processors] - The maximum number of files decrypted at the same time.<br>
+     *                  Integer maxFetches? [8] - The maximum number of keys fetched at the same time.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:List&lt;Path>, failures:Map&lt;Path, String>}>,
+     * the decrypted files in the order they were found, and the reason each of the others could not be decrypted.
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeValid.get();
+                                        final Path sourceDirectory = ((Path) args.get(SOURCE_DIRECTORY)).toAbsolutePath().normalize();
+                                        final Path targetDirectory = ((Path) args.get(TARGET_DIRECTORY)).toAbsolutePath().normalize();
+                                        final int parallelism = Math.max(1, ((Number) args.getOrDefault(PARALLELISM, Runtime.getRuntime().availableProcessors())).intValue());
+                                        final int maxFetches = Math.max(1, ((Number) args.getOrDefault(MAX_FETCHES, DEFAULT_MAX_FETCHES)).intValue());
+                                        final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+
+                                        if (!Files.isDirectory(sourceDirectory)) {
+                                            return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound,
+                                                    String.format("Source directory does not exist: %s", sourceDirectory)));
+                                        }
+
+                                        final long start = System.nanoTime();
+                                        final Map<Path, String> failures = new ConcurrentHashMap<>();
+
+                                        return CompletableFuture.supplyAsync(() -> scan(algorithm, sourceDirectory, targetDirectory, failures), sdk.getIoExecutor())
+                                                .thenCompose((files) -> {
+                                                    // one key fetch per distinct locator token, in order of first appearance
+                                                    final Map<String, CompletableFuture<ServerResponse>> keys = FetchKey.with(sdk).fetchAll(
+                                                            files.stream().map((file) -> file.locatorToken).collect(Collectors.toList()),
+                                                            authorizationToken, maxFetches);
+
+                                                    // the files are decrypted in the order their keys are fetched, so that no lane waits on a key fetched late
+                                                    final Map<String, Integer> fetchOrder = new LinkedHashMap<>();
+                                                    keys.keySet().forEach((locatorToken) -> fetchOrder.put(locatorToken, fetchOrder.size()));
+                                                    final List<EncryptedFile> queue = new ArrayList<>(files);
+                                                    queue.sort((a, b) -> Integer.compare(fetchOrder.get(a.locatorToken), fetchOrder.get(b.locatorToken)));
+
+                                                    final AtomicReferenceArray<Path> decrypted = new AtomicReferenceArray<>(files.size());
+                                                    final CompletableFuture<Void> done = Lanes.drain(queue, parallelism,
+                                                            (file) -> decrypt(algorithm, keys, file, decrypted, failures), sdk.getIoExecutor());
+
+                                                    return done.thenApply((ignored) -> {
+                                                        List<Path> targets = IntStream.range(0, decrypted.length())
+                                                                .mapToObj(decrypted::get)
+                                                                .filter(Objects::nonNull)
+                                                                .collect(Collectors.toList());
+                                                        logger.info(String.format("decrypted %d files with %d keys in %d ms, %d failed",
+                                                                targets.size(), keys.size(), (System.nanoTime() - start) / 1_000_000, failures.size()));
+                                                        return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, targets, FAILURES, Map.copyOf(failures)));
+                                                    });
+                                                });
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    /**
+     * Walks the source directory and reads the locator token of every `.xqf` file, creating the target directories on the way.
+     * Files whose header cannot be read are added to `failures`.
+     */
+    private List<EncryptedFile> scan(XQAlgorithm algorithm, Path sourceDirectory, Path targetDirectory, Map<Path, String> failures) {
+        final List<EncryptedFile> files = new ArrayList<>();
+        try {
+            Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return dir.equals(targetDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    final String relativePath = sourceDirectory.relativize(file).toString();
+                    if (!attrs.isRegularFile() || !relativePath.endsWith(BulkFileEncrypt.TARGET_SUFFIX)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final Path targetFilePath = targetDirectory.resolve(relativePath.substring(0, relativePath.length() - BulkFileEncrypt.TARGET_SUFFIX.length()));
+                    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), HEADER_BUFFER_SIZE)) {
+                        final String locatorToken = algorithm.readLocatorToken(in);
+                        Files.createDirectories(targetFilePath.getParent());
+                        files.add(new EncryptedFile(files.size(), file, targetFilePath, locatorToken));
+                    } catch (IOException e) {
+                        logger.warning(String.format("failed to read the header of %s, reason: %s", file, e.getMessage()));
+                        failures.put(file, String.valueOf(e.getMessage()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.warning(String.format("failed to read %s, reason: %s", file, e.getMessage()));
+                    failures.put(file, String.valueOf(e.getMessage()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warning(e.getMessage());
+            failures.put(sourceDirectory, String.valueOf(e.getMessage()));
+        }
+        return files;
+    }
+
+    /**
+     * Decrypts a file once its key has arrived, recording the outcome in `decrypted` or `failures`.
+     */
+    private CompletableFuture<?> decrypt(XQAlgorithm algorithm, Map<String, CompletableFuture<ServerResponse>> keys, EncryptedFile file,
+                                         AtomicReferenceArray<Path> decrypted, Map<Path, String> failures) {
+        return keys.get(file.locatorToken)
+                .thenCompose((keyRetrievalResponse) -> {
+                    switch (keyRetrievalResponse.status) {
+                        case Ok: {
+                            final String key = (String) keyRetrievalResponse.payload.get(ServerResponse.DATA);
+                            return algorithm.decrypt(file.sourceFilePath, file.targetFilePath, (aLocatorToken) -> CompletableFuture.completedFuture(key));
+                        }
+                        default: {
+                            return CompletableFuture.completedFuture(keyRetrievalResponse);
+                        }
+                    }
+                })
+                .whenComplete((response, e) -> {
+                    if (e == null && response != null && response.status == CallStatus.Ok) {
+                        decrypted.set(file.index, file.targetFilePath);
+                    } else {
+                        String reason = e != null ? e.getMessage() : response != null ? response.moreInfo() : "Decryption failed.";
+                        logger.warning(String.format("failed to decrypt %s, reason: %s", file.sourceFilePath, reason));
+                        failures.put(file.sourceFilePath, String.valueOf(reason));
+                    }
+                });
+    }
+
+    @Override
+    public String moduleName() {
+        return "BulkFileDecrypt";
+    }
+
+    private static final class EncryptedFile {
+
+        final int index;
+        final Path sourceFilePath;
+        final Path targetFilePath;
+        final String locatorToken;
+
+        EncryptedFile(int index, Path sourceFilePath, Path targetFilePath, String locatorToken) {
+            this.index = index;
+            this.sourceFilePath = sourceFilePath;
+            this.targetFilePath = targetFilePath;
+            this.locatorToken = locatorToken;
+        }
+    }
+
+}
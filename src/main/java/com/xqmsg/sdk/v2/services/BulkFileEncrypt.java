@@ -0,0 +1,596 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
+import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Encrypts every file of a directory tree using the {@link AlgorithmEnum} provided.<br>
+ * Each file is encrypted like {@link FileEncrypt} does, with its own key, into the same relative path under the target directory
+ * with `.xqf` appended. Files are streamed, so memory use does not depend on their size.<br>
+ * The tree is walked on a thread of its own, which starts each file as a chain of asynchronous stages and waits whenever
+ * `parallelism` files are in progress or they add up to `maxInFlightBytes`. No more than `maxUploads` keys are uploaded at the same time,
+ * and no stage holds a thread while it waits for the server.<br>
+ * Every encrypted file is appended to a manifest as soon as it is written. When a job is run again over the same directories,
+ * files listed in the manifest with an unchanged size and modification time are skipped, so a job interrupted by a crash
+ * resumes where it stopped.
+ */
+public class BulkFileEncrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String USER = "user";
+    public static final String SOURCE_DIRECTORY = "sourceDirectory";
+    public static final String TARGET_DIRECTORY = "targetDirectory";
+    public static final String RECIPIENTS = "recipients";
+    public static final String MESSAGE_EXPIRATION_HOURS = "expires";
+    public static final String DELETE_ON_RECEIPT = "dor";
+    public static final String MANIFEST = "manifest";
+    public static final String PARALLELISM = "parallelism";
+    public static final String MAX_IN_FLIGHT_BYTES = "maxInFlightBytes";
+    public static final String MAX_UPLOADS = "maxUploads";
+    public static final String ON_PROGRESS = "onProgress";
+
+    public static final String FAILURES = "failures";
+
+    public static final String TARGET_SUFFIX = ".xqf";
+    public static final String DEFAULT_MANIFEST_NAME = ".xq-manifest";
+
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L * 1024 * 1024;
+    private static final int DEFAULT_MAX_UPLOADS = 8;
+
+    /**
+     * In-flight bytes are counted in units of this size, so that the limit fits the permits of a {@link Semaphore}.
+     */
+    private static final int PERMIT_SIZE = 1024;
+
+    private final AlgorithmEnum algorithm;
+
+    private BulkFileEncrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(USER, SOURCE_DIRECTORY, TARGET_DIRECTORY, RECIPIENTS, MESSAGE_EXPIRATION_HOURS);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static BulkFileEncrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new BulkFileEncrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  String user! - Email of the validated user and author of the messages.<br>
+     *                  Path sourceDirectory! - The directory whose files are encrypted, including those of its subdirectories.<br>
+     *                  Path targetDirectory! - The directory the encrypted files are written to. Created if it does not exist.<br>
+     *                  List<String> recipients! - List of emails of those recipients who are allowed to access the keys.<br>
+     *                  Long expires! - The number of hours that the keys will remain valid for. After this time, they will no longer be accessible.<br>
+     *                  Boolean dor? [false] - Should the content be deleted after opening.<br>
+     *                  Path manifest? [targetDirectory/.xq-manifest] - The manifest of encrypted files, read to resume and appended to.<br>
+     *                  Integer parallelism? [available processors] - The number of files encrypted at the same time.<br>
+     *                  Long maxInFlightBytes? [268435456] - The total size of the files being encrypted at the same time.
+     *                  A larger file is encrypted on its own.<br>
+     *                  Integer maxUploads? [8] - The maximum number of keys uploaded at the same time.<br>
+     *                  Consumer&lt;Progress> onProgress? - Called after each file with the progress so far. It is called from the SDK's threads and should return quickly.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:Progress, failures:Map&lt;Path, String>}>
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeValid.get();
+                                        final Path sourceDirectory = ((Path) args.get(SOURCE_DIRECTORY)).toAbsolutePath().normalize();
+                                        final Path targetDirectory = ((Path) args.get(TARGET_DIRECTORY)).toAbsolutePath().normalize();
+                                        final Path manifestPath = args.get(MANIFEST) != null
+                                                ? ((Path) args.get(MANIFEST)).toAbsolutePath().normalize()
+                                                : targetDirectory.resolve(DEFAULT_MANIFEST_NAME);
+                                        final int parallelism = Math.max(1, ((Number) args.getOrDefault(PARALLELISM, Runtime.getRuntime().availableProcessors())).intValue());
+                                        final long maxInFlightBytes = Math.max(PERMIT_SIZE, ((Number) args.getOrDefault(MAX_IN_FLIGHT_BYTES, DEFAULT_MAX_IN_FLIGHT_BYTES)).longValue());
+                                        final int maxUploads = Math.max(1, ((Number) args.getOrDefault(MAX_UPLOADS, DEFAULT_MAX_UPLOADS)).intValue());
+                                        @SuppressWarnings("unchecked")
+                                        final Consumer<Progress> onProgress = (Consumer<Progress>) args.getOrDefault(ON_PROGRESS, (Consumer<Progress>) (progress) -> {
+                                        });
+
+                                        if (!Files.isDirectory(sourceDirectory)) {
+                                            return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound,
+                                                    String.format("Source directory does not exist: %s", sourceDirectory)));
+                                        }
+
+                                        return run(new Job(sdk.getAlgorithm(this.algorithm), args, authorizationToken,
+                                                sourceDirectory, targetDirectory, manifestPath, parallelism, maxInFlightBytes, maxUploads, onProgress));
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    /**
+     * Starts the walk on a thread of its own: it is the only part of the run which blocks,
+     * waiting for a file to finish whenever too many are in progress.
+     */
+    private CompletableFuture<ServerResponse> run(Job job) {
+        final CompletableFuture<ServerResponse> result = new CompletableFuture<>();
+        Thread walker = new Thread(() -> walk(job, result), "xq-bulk-encrypt");
+        walker.setDaemon(true);
+        walker.start();
+        return result;
+    }
+
+    /**
+     * Walks the source directory, starting the encryption of each file not yet in the manifest.
+     * `result` is completed once the walk is over and every file started has been recorded.
+     */
+    private void walk(Job job, CompletableFuture<ServerResponse> result) {
+
+        final Manifest manifest;
+        try {
+            Files.createDirectories(job.targetDirectory);
+            manifest = Manifest.open(job.manifestPath);
+        } catch (IOException e) {
+            logger.warning(e.getMessage());
+            result.complete(new ServerResponse(CallStatus.Error, Reasons.FileCreateFailed, e.getMessage()));
+            return;
+        }
+
+        // the walk counts as one more file in progress, so the run cannot finish before the walk is over
+        final AtomicInteger inProgress = new AtomicInteger(1);
+        final AtomicReference<ServerResponse> walkError = new AtomicReference<>();
+        final Runnable fileDone = () -> {
+            if (inProgress.decrementAndGet() == 0) {
+                result.complete(finish(job, manifest, walkError.get()));
+            }
+        };
+        try {
+            Files.walkFileTree(job.sourceDirectory, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return dir.equals(job.targetDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || file.equals(job.manifestPath)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final String relativePath = Manifest.key(job.sourceDirectory.relativize(file));
+                    final Path targetFilePath = job.targetDirectory.resolve(job.sourceDirectory.relativize(file) + TARGET_SUFFIX);
+                    final long size = attrs.size();
+                    final long lastModified = attrs.lastModifiedTime().toMillis();
+
+                    job.progress.found(size);
+                    if (manifest.contains(relativePath, size, lastModified) && Files.exists(targetFilePath)) {
+                        job.progress.skipped();
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    final int permits = job.permits(size);
+                    try {
+                        job.acquire(permits);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    inProgress.incrementAndGet();
+                    encrypt(job, file, targetFilePath, size)
+                            .whenComplete((response, e) -> {
+                                try {
+                                    record(job, manifest, file, relativePath, size, lastModified, response, e);
+                                    job.onProgress.accept(job.progress.snapshot());
+                                } finally {
+                                    job.release(permits);
+                                    fileDone.run();
+                                }
+                            });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.warning(String.format("failed to read %s, reason: %s", file, e.getMessage()));
+                    job.failures.put(file, String.valueOf(e.getMessage()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.warning(e.getMessage());
+            walkError.set(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
+        } finally {
+            // the files already started are finished, and recorded, in any case
+            fileDone.run();
+        }
+    }
+
+    /**
+     * Appends a file encrypted successfully to the manifest, or adds it to the failures.
+     */
+    private void record(Job job, Manifest manifest, Path file, String relativePath, long size, long lastModified, ServerResponse response, Throwable e) {
+        String failure;
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            failure = String.valueOf(cause.getMessage());
+        } else if (response.status != CallStatus.Ok) {
+            failure = response.moreInfo();
+        } else {
+            try {
+                manifest.append(relativePath, size, lastModified, (String) response.payload.get(ServerResponse.DATA));
+                job.progress.done(size);
+                return;
+            } catch (IOException ioe) {
+                failure = String.valueOf(ioe.getMessage());
+            }
+        }
+        logger.warning(String.format("failed to encrypt %s, reason: %s", file, failure));
+        job.failures.put(file, failure);
+        job.progress.failed();
+    }
+
+    private ServerResponse finish(Job job, Manifest manifest, ServerResponse walkError) {
+        try {
+            manifest.close();
+        } catch (IOException e) {
+            logger.warning(e.getMessage());
+        }
+        if (walkError != null) {
+            return walkError;
+        }
+
+        Progress progress = job.progress.snapshot();
+        logger.info(String.format("encrypted %d files ( %d bytes ) in %d ms, %d skipped, %d failed, %.1f MB/s",
+                progress.filesDone, progress.bytesDone, progress.elapsedMillis, progress.filesSkipped, progress.filesFailed,
+                progress.bytesPerSecond() / (1024 * 1024)));
+        return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, progress, FAILURES, Map.copyOf(job.failures)));
+    }
+
+    /**
+     * Encrypts one file as a chain of stages: draws a key, uploads it once an upload slot is free, then streams the file.
+     *
+     * @return on success, a response whose data is the locator token of the file.
+     */
+    private CompletableFuture<ServerResponse> encrypt(Job job, Path sourceFilePath, Path targetFilePath, long size) {
+
+        return sdk.getEntropyPool()
+                .map(EntropyPool::take)
+                .orElseGet(() -> FetchQuantumEntropy.with(sdk).supplyAsync(Optional.empty()))
+                .thenComposeAsync((keyResponse) -> {
+                    if (keyResponse.status != CallStatus.Ok) {
+                        return CompletableFuture.completedFuture(keyResponse);
+                    }
+                    final String initialKey = (String) keyResponse.payload.get(ServerResponse.DATA);
+                    final String expandedKey = job.algorithm.expandKey(initialKey, (int) (size > 4096 ? 4096 : Math.max(2048, size)));
+
+                    // the run has been validated and authorized once, every file reuses its token
+                    return job.upload(() -> UploadKey.with(sdk)
+                                    .upload(Map.of(
+                                            UploadKey.KEY, job.algorithm.prefix() + expandedKey,
+                                            UploadKey.RECIPIENTS, job.recipients,
+                                            UploadKey.MESSAGE_EXPIRATION_HOURS, job.expiration,
+                                            UploadKey.DELETE_ON_RECEIPT, job.deleteOnReceipt), job.authorizationToken))
+                            .thenComposeAsync((uploadResponse) -> {
+                                if (uploadResponse.status != CallStatus.Ok) {
+                                    return CompletableFuture.completedFuture(uploadResponse);
+                                }
+                                final String locatorToken = (String) uploadResponse.payload.get(ServerResponse.DATA);
+                                try {
+                                    Files.createDirectories(targetFilePath.getParent());
+                                } catch (IOException e) {
+                                    return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.FileCreateFailed, e.getMessage()));
+                                }
+                                return job.algorithm.encrypt(sourceFilePath, targetFilePath, expandedKey, locatorToken)
+                                        .thenApply((encryptResponse) -> {
+                                            if (encryptResponse == null) {
+                                                return new ServerResponse(CallStatus.Error, Reasons.EncryptionFailed, "Encryption failed.");
+                                            }
+                                            return encryptResponse.status == CallStatus.Ok
+                                                    ? new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, locatorToken))
+                                                    : encryptResponse;
+                                        });
+                            }, sdk.getIoExecutor());
+                }, sdk.getCpuExecutor());
+    }
+
+    @Override
+    public String moduleName() {
+        return "BulkFileEncrypt";
+    }
+
+    /**
+     * The settings and shared state of one run.
+     */
+    private static final class Job {
+
+        final XQAlgorithm algorithm;
+        final String authorizationToken;
+        final Path sourceDirectory;
+        final Path targetDirectory;
+        final Path manifestPath;
+        final String recipients;
+        final Object expiration;
+        final boolean deleteOnReceipt;
+        final int maxPermits;
+        final Semaphore files;
+        final Semaphore inFlightBytes;
+        final Semaphore uploads;
+        final Queue<Runnable> waitingUploads = new ConcurrentLinkedQueue<>();
+        final Consumer<Progress> onProgress;
+        final Tracker progress = new Tracker();
+        final Map<Path, String> failures = new ConcurrentHashMap<>();
+
+        Job(XQAlgorithm algorithm, Map<String, Object> args, String authorizationToken, Path sourceDirectory, Path targetDirectory, Path manifestPath,
+            int parallelism, long maxInFlightBytes, int maxUploads, Consumer<Progress> onProgress) {
+            this.algorithm = algorithm;
+            this.authorizationToken = authorizationToken;
+            this.sourceDirectory = sourceDirectory;
+            this.targetDirectory = targetDirectory;
+            this.manifestPath = manifestPath;
+            this.recipients = ((List<?>) args.get(RECIPIENTS)).stream().map(String::valueOf).collect(Collectors.joining(","));
+            this.expiration = args.get(MESSAGE_EXPIRATION_HOURS);
+            this.deleteOnReceipt = args.get(DELETE_ON_RECEIPT) != null && (boolean) args.getOrDefault(DELETE_ON_RECEIPT, false);
+            this.maxPermits = (int) Math.min(Integer.MAX_VALUE, maxInFlightBytes / PERMIT_SIZE);
+            this.files = new Semaphore(parallelism);
+            this.inFlightBytes = new Semaphore(maxPermits);
+            this.uploads = new Semaphore(maxUploads);
+            this.onProgress = onProgress;
+        }
+
+        /**
+         * Empty files still take a permit, and files larger than the limit take all of them.
+         */
+        int permits(long size) {
+            return (int) Math.min(maxPermits, Math.max(1, (size + PERMIT_SIZE - 1) / PERMIT_SIZE));
+        }
+
+        /**
+         * Waits for a file slot and for `permits` of in-flight bytes; only ever called by the walk.
+         */
+        void acquire(int permits) throws InterruptedException {
+            files.acquire();
+            try {
+                inFlightBytes.acquire(permits);
+            } catch (InterruptedException e) {
+                files.release();
+                throw e;
+            }
+        }
+
+        void release(int permits) {
+            inFlightBytes.release(permits);
+            files.release();
+        }
+
+        /**
+         * Starts `upload` as soon as fewer than `maxUploads` are running. Nothing waits for a slot:
+         * the upload is queued, and started by whichever upload completes first.
+         */
+        CompletableFuture<ServerResponse> upload(Supplier<CompletableFuture<ServerResponse>> upload) {
+            final CompletableFuture<ServerResponse> uploaded = new CompletableFuture<>();
+            waitingUploads.add(() -> upload.get().whenComplete((response, e) -> {
+                uploads.release();
+                startUploads();
+                if (e != null) {
+                    uploaded.completeExceptionally(e);
+                } else {
+                    uploaded.complete(response);
+                }
+            }));
+            startUploads();
+            return uploaded;
+        }
+
+        private void startUploads() {
+            while (!waitingUploads.isEmpty() && uploads.tryAcquire()) {
+                Runnable next = waitingUploads.poll();
+                if (next != null) {
+                    next.run();
+                } else {
+                    uploads.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * The progress of a run at some point in time. `filesFound` and `bytesFound` grow while the tree is being walked.
+     */
+    public static final class Progress {
+
+        public final long filesFound;
+        public final long filesDone;
+        public final long filesSkipped;
+        public final long filesFailed;
+        public final long bytesFound;
+        public final long bytesDone;
+        public final long elapsedMillis;
+
+        Progress(long filesFound, long filesDone, long filesSkipped, long filesFailed, long bytesFound, long bytesDone, long elapsedMillis) {
+            this.filesFound = filesFound;
+            this.filesDone = filesDone;
+            this.filesSkipped = filesSkipped;
+            this.filesFailed = filesFailed;
+            this.bytesFound = bytesFound;
+            this.bytesDone = bytesDone;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * @return the number of bytes encrypted per second since the start of the run. Skipped files are not counted.
+         */
+        public double bytesPerSecond() {
+            return elapsedMillis == 0 ? 0 : bytesDone * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Progress{filesFound=%d, filesDone=%d, filesSkipped=%d, filesFailed=%d, bytesFound=%d, bytesDone=%d, elapsedMillis=%d}",
+                    filesFound, filesDone, filesSkipped, filesFailed, bytesFound, bytesDone, elapsedMillis);
+        }
+    }
+
+    private static final class Tracker {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong filesFound = new AtomicLong();
+        private final AtomicLong filesDone = new AtomicLong();
+        private final AtomicLong filesSkipped = new AtomicLong();
+        private final AtomicLong filesFailed = new AtomicLong();
+        private final AtomicLong bytesFound = new AtomicLong();
+        private final AtomicLong bytesDone = new AtomicLong();
+
+        void found(long size) {
+            filesFound.incrementAndGet();
+            bytesFound.addAndGet(size);
+        }
+
+        void done(long size) {
+            filesDone.incrementAndGet();
+            bytesDone.addAndGet(size);
+        }
+
+        void skipped() {
+            filesSkipped.incrementAndGet();
+        }
+
+        void failed() {
+            filesFailed.incrementAndGet();
+        }
+
+        Progress snapshot() {
+            return new Progress(filesFound.get(), filesDone.get(), filesSkipped.get(), filesFailed.get(),
+                    bytesFound.get(), bytesDone.get(), (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    /**
+     * An append-only list of encrypted files, one per line: `size \t lastModified \t locatorToken \t relativePath`.<br>
+     * Each line is flushed as soon as it is written; a line cut short by a crash is ignored when the manifest is read back,
+     * and its file is encrypted again.
+     */
+    private static final class Manifest implements Closeable {
+
+        private final Map<String, long[]> entries;
+        private final BufferedWriter writer;
+
+        private Manifest(Map<String, long[]> entries, BufferedWriter writer) {
+            this.entries = entries;
+            this.writer = writer;
+        }
+
+        static Manifest open(Path path) throws IOException {
+            Map<String, long[]> entries = new HashMap<>();
+            if (Files.exists(path)) {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    String[] fields = line.split("\t", 4);
+                    if (fields.length < 4 || fields[3].isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        entries.put(fields[3], new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1])});
+                    } catch (NumberFormatException e) {
+                        // a partial line
+                    }
+                }
+            }
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            // a line cut short by a crash must not run into the first one appended now
+            if (!endsWithNewLine(path)) {
+                writer.newLine();
+                writer.flush();
+            }
+            return new Manifest(entries, writer);
+        }
+
+        private static boolean endsWithNewLine(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() == 0) {
+                    return true;
+                }
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, channel.size() - 1);
+                return last.get(0) == '\n';
+            }
+        }
+
+        /**
+         * @return the manifest key of a path relative to the source directory, with `/` as separator on every platform.
+         */
+        static String key(Path relativePath) {
+            return relativePath.toString().replace(relativePath.getFileSystem().getSeparator(), "/");
+        }
+
+        boolean contains(String relativePath, long size, long lastModified) {
+            long[] entry = entries.get(relativePath);
+            return entry != null && entry[0] == size && entry[1] == lastModified;
+        }
+
+        synchronized void append(String relativePath, long size, long lastModified, String locatorToken) throws IOException {
+            writer.write(String.format("%d\t%d\t%s\t%s", size, lastModified, locatorToken, relativePath));
+            writer.newLine();
+            writer.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+}
@@ -62,14 +62,12 @@ public class CheckApiKey extends XQModule {
                         try {
                             return authorize
                                     .andThen((authorizationToken) ->
-                                            CompletableFuture.completedFuture(
-                                                    sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
-                                                            Optional.of(SERVICE_NAME),
-                                                            CallMethod.Get,
-                                                            Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
-                                                            Optional.of(Destination.XQ),
-                                                            maybeArgs)
-                                            )
+                                            sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
+                                                    Optional.of(SERVICE_NAME),
+                                                    CallMethod.Get,
+                                                    Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
+                                                    Optional.of(Destination.XQ),
+                                                    maybeArgs)
                                     ).apply(Optional.of(Destination.XQ), validated);
 
                         } catch (RuntimeException e) {
@@ -72,12 +72,14 @@ public class CheckKeyExpiration extends XQModule {
 
                                                         final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, encode(locatorToken));
 
-                                                        return CompletableFuture.completedFuture(sdk.call(sdk.VALIDATION_SERVER_URL,
-                                                                Optional.of(DYNAMIC_SERVICE_NAME),
-                                                                CallMethod.Get,
-                                                                Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
-                                                                Optional.of(Destination.XQ),
-                                                                Optional.of(Map.of())));
+                                                        return sdk.getSingleFlight().execute(
+                                                                String.format("%s/%s %s", sdk.VALIDATION_SERVER_URL, DYNAMIC_SERVICE_NAME, authorizationToken),
+                                                                () -> sdk.callAsync(sdk.VALIDATION_SERVER_URL,
+                                                                        Optional.of(DYNAMIC_SERVICE_NAME),
+                                                                        CallMethod.Get,
+                                                                        Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
+                                                                        Optional.of(Destination.XQ),
+                                                                        Optional.of(Map.of())));
 
                                                     })
                                             .apply(Optional.of(Destination.XQ), maybeValidated);
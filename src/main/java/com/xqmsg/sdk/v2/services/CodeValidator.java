@@ -65,23 +65,24 @@ public class CodeValidator extends XQModule {
                   (preauthAccessToken) -> {
 
                     Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", preauthAccessToken));
-                    ServerResponse validationResponse = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                    return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                             Optional.of(SERVICE_NAME),
                             CallMethod.Get,
                             Optional.of(headerProperties),
                             Optional.of(Destination.XQ),
-                            maybeArgs);
-
-                    switch (validationResponse.status) {
-                      case Ok: {
-                        return ExchangeForAccessToken
-                                .with(sdk)
-                                .supplyAsync(Optional.empty());
-                      }
-                      default: {
-                        return CompletableFuture.completedFuture(validationResponse);
-                      }
-                    }
+                            maybeArgs)
+                            .thenCompose((validationResponse) -> {
+                              switch (validationResponse.status) {
+                                case Ok: {
+                                  return ExchangeForAccessToken
+                                          .with(sdk)
+                                          .supplyAsync(Optional.empty());
+                                }
+                                default: {
+                                  return CompletableFuture.completedFuture(validationResponse);
+                                }
+                              }
+                            });
                   }).apply(maybeValidated);
         } catch (RuntimeException e) {
           return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
@@ -65,7 +65,7 @@ public class CombineAuthorizations extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate.andThen((maybeValid) -> {
+            return validate.andThen((maybeValid) -> {
                 try {
                     return authorize.andThen(
                             (authorizationToken) -> {
@@ -82,12 +82,12 @@ public class CombineAuthorizations extends XQModule {
                                         }
                                     }
                                     if (accessTokens == null || accessTokens.size() == 0) {
-                                        return new ServerResponse(CallStatus.Error, Reasons.MissingParameters, "No Access tokens available to merge");
+                                        return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.MissingParameters, "No Access tokens available to merge"));
                                     }
 
                                     Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", authorizationToken));
 
-                                    return sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                                    return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                                             Optional.of(SERVICE_NAME),
                                             CallMethod.Post,
                                             Optional.of(headerProperties),
@@ -95,13 +95,13 @@ public class CombineAuthorizations extends XQModule {
                                             Optional.of(Map.of(CombineAuthorizations.TOKENS, accessTokens))
                                     );
                                 } catch (StatusCodeException s) {
-                                    return new ServerResponse(CallStatus.Error, Reasons.Unauthorized, s.statusMessage());
+                                    return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.Unauthorized, s.statusMessage()));
                                 }
                             }).apply(Optional.empty(), maybeValid);
                 } catch (RuntimeException e) {
-                    return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                    return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                 }
-            }).apply(maybeArgs));
+            }).apply(maybeArgs);
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
         }
@@ -51,37 +51,39 @@ public class DeleteSubscriber extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
                                     .andThen((authorizationToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", authorizationToken));
-                                        ServerResponse deleteResponse = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                                                 Optional.of(SERVICE_NAME),
                                                 CallMethod.Delete,
                                                 Optional.of(headerProperties),
                                                 Optional.of(Destination.XQ),
-                                                maybeArgs);
-                                        switch (deleteResponse.status) {
-                                            case Ok: {
-                                                try {
-                                                    String activeProfile = cache.getActiveProfile(true);
-                                                    cache.removeProfile(activeProfile);
-                                                } catch (StatusCodeException e) {
-                                                    logger.severe(e.getMessage());
-                                                }
-                                            }
-                                            default: {
-                                                return deleteResponse;
-                                            }
-                                        }
+                                                maybeArgs)
+                                                .thenApply((deleteResponse) -> {
+                                                    switch (deleteResponse.status) {
+                                                        case Ok: {
+                                                            try {
+                                                                String activeProfile = cache.getActiveProfile(true);
+                                                                cache.removeProfile(activeProfile);
+                                                            } catch (StatusCodeException e) {
+                                                                logger.severe(e.getMessage());
+                                                            }
+                                                        }
+                                                        default: {
+                                                            return deleteResponse;
+                                                        }
+                                                    }
+                                                });
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -7,6 +7,7 @@ import com.xqmsg.sdk.v2.ServerResponse;
 import com.xqmsg.sdk.v2.XQModule;
 import com.xqmsg.sdk.v2.XQSDK;
 import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
 import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
 import com.xqmsg.sdk.v2.utils.Destination;
 
@@ -16,6 +17,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -86,42 +89,63 @@ public class Encrypt extends XQModule {
                                 final Integer expiration = (Integer) args.get(MESSAGE_EXPIRATION_HOURS);
                                 final boolean deleteOnReceipt = args.get(DELETE_ON_RECEIPT) != null && (boolean) args.getOrDefault(DELETE_ON_RECEIPT, false);
                                 final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+                                final long started = System.nanoTime();
 
-                                return FetchQuantumEntropy
-                                        .with(sdk)
-                                        .supplyAsync(Optional.empty())
+                                return sdk.getEntropyPool()
+                                        .map(EntropyPool::take)
+                                        .orElseGet(() -> FetchQuantumEntropy.with(sdk).supplyAsync(Optional.empty()))
                                         .thenCompose((ServerResponse keyResponse) -> {
                                             switch (keyResponse.status) {
                                                 case Ok: {
                                                     final String initialKey = (String) keyResponse.payload.get(ServerResponse.DATA);
                                                     try {
+                                                        final long keyReady = System.nanoTime();
                                                         String expandedKey = algorithm.expandKey(initialKey, message.length() > 4096 ? 4096 : Math.max(2048, message.length()));
-                                                        return algorithm
+                                                        final long keyExpanded = System.nanoTime();
+                                                        final AtomicLong encryptNanos = new AtomicLong();
+                                                        final AtomicLong uploadNanos = new AtomicLong();
+
+                                                        // the upload only needs the key, so it runs alongside the encryption
+                                                        CompletableFuture<ServerResponse> encryption = algorithm
                                                                 .encrypt(message, expandedKey)
-                                                                .thenCompose((encryptServerResponse) -> {
-                                                                    final byte[] encryptedBytes = (byte[]) encryptServerResponse.payload.get(ServerResponse.DATA);
-                                                                    String encryptedText = new String(encryptedBytes, StandardCharsets.UTF_8);
-                                                                    return UploadKey
-                                                                            .with(sdk)
-                                                                            .supplyAsync(Optional.of(Map.of(
-                                                                                    KEY, algorithm.prefix() + expandedKey,
-                                                                                    RECIPIENTS, recipients.stream().collect(Collectors.joining(",")),
-                                                                                    MESSAGE_EXPIRATION_HOURS, expiration,
-                                                                                    DELETE_ON_RECEIPT, deleteOnReceipt)))
-                                                                            .thenApply(
-                                                                                    (validateResponse) -> {
-                                                                                        switch (validateResponse.status) {
-                                                                                            case Ok: {
-                                                                                                final String locator = (String) validateResponse.payload.get(ServerResponse.DATA);
-                                                                                                return new ServerResponse(CallStatus.Ok, Map.of(Encrypt.LOCATOR_KEY, locator, Encrypt.ENCRYPTED_TEXT, encryptedText));
-                                                                                            }
-                                                                                            default: {
-                                                                                                return validateResponse;
-                                                                                            }
-
-                                                                                        }
-                                                                                    });
-                                                                });
+                                                                .whenComplete((r, e) -> encryptNanos.set(System.nanoTime() - keyExpanded))
+                                                                .handle((r, e) -> e == null && r != null
+                                                                        ? r
+                                                                        : new ServerResponse(CallStatus.Error, Reasons.EncryptionFailed, e != null ? e.getMessage() : "Encryption failed."));
+                                                        CompletableFuture<ServerResponse> upload = UploadKey
+                                                                .with(sdk)
+                                                                .supplyAsync(Optional.of(Map.of(
+                                                                        KEY, algorithm.prefix() + expandedKey,
+                                                                        RECIPIENTS, recipients.stream().collect(Collectors.joining(",")),
+                                                                        MESSAGE_EXPIRATION_HOURS, expiration,
+                                                                        DELETE_ON_RECEIPT, deleteOnReceipt)))
+                                                                .whenComplete((r, e) -> uploadNanos.set(System.nanoTime() - keyExpanded));
+
+                                                        return encryption.thenCombine(upload, (encryptServerResponse, validateResponse) -> {
+                                                            // every call logs this, so only when asked for
+                                                            if (logger.isLoggable(Level.FINE)) {
+                                                                logger.fine(String.format("Encrypt timings (ms): entropy=%.1f, expandKey=%.1f, encrypt=%.1f, uploadKey=%.1f, total=%.1f",
+                                                                        (keyReady - started) / 1e6, (keyExpanded - keyReady) / 1e6,
+                                                                        encryptNanos.get() / 1e6, uploadNanos.get() / 1e6, (System.nanoTime() - started) / 1e6));
+                                                            }
+
+                                                            if (encryptServerResponse.status != CallStatus.Ok) {
+                                                                return encryptServerResponse;
+                                                            }
+                                                            switch (validateResponse.status) {
+                                                                case Ok: {
+                                                                    final Object encrypted = encryptServerResponse.payload.get(ServerResponse.DATA);
+                                                                    final String encryptedText = encrypted instanceof byte[]
+                                                                            ? new String((byte[]) encrypted, StandardCharsets.UTF_8)
+                                                                            : (String) encrypted;
+                                                                    final String locator = (String) validateResponse.payload.get(ServerResponse.DATA);
+                                                                    return new ServerResponse(CallStatus.Ok, Map.of(Encrypt.LOCATOR_KEY, locator, Encrypt.ENCRYPTED_TEXT, encryptedText));
+                                                                }
+                                                                default: {
+                                                                    return validateResponse;
+                                                                }
+                                                            }
+                                                        });
                                                     } catch (Exception e) {
                                                         String errorMessage = e.getMessage();
                                                         logger.warning(errorMessage);
@@ -49,40 +49,41 @@ public class ExchangeForAccessToken extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate.andThen((maybeValidated) -> {
+            return validate.andThen((maybeValidated) -> {
                 try {
                     return preAuthorize.andThen(
                             (preauthAccessToken) -> {
                                 Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", preauthAccessToken));
 
-                                ServerResponse exchangeResponse = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                                return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                                         Optional.of(SERVICE_NAME),
                                         CallMethod.Get,
                                         Optional.of(headerProperties),
                                         Optional.of(Destination.XQ),
-                                        maybeArgs);
-
-                                switch (exchangeResponse.status) {
-                                    case Ok: {
-                                        String accessToken = (String) exchangeResponse.payload.get(ServerResponse.DATA);
-                                        try {
-                                            String activeProfile = cache.getActiveProfile(true);
-                                            cache.putXQAccess(activeProfile, accessToken);
-                                            cache.removeXQPreAuthToken(activeProfile);
-                                        } catch (StatusCodeException e) {
-                                            logger.severe(e.getMessage());
-                                            return null;
-                                        }
-                                    }
-                                    default: {
-                                        return exchangeResponse;
-                                    }
-                                }
+                                        maybeArgs)
+                                        .thenApply((exchangeResponse) -> {
+                                            switch (exchangeResponse.status) {
+                                                case Ok: {
+                                                    String accessToken = (String) exchangeResponse.payload.get(ServerResponse.DATA);
+                                                    try {
+                                                        String activeProfile = cache.getActiveProfile(true);
+                                                        cache.putXQAccess(activeProfile, accessToken);
+                                                        cache.removeXQPreAuthToken(activeProfile);
+                                                    } catch (StatusCodeException e) {
+                                                        logger.severe(e.getMessage());
+                                                        return null;
+                                                    }
+                                                }
+                                                default: {
+                                                    return exchangeResponse;
+                                                }
+                                            }
+                                        });
                             }).apply(maybeValidated);
                 } catch (RuntimeException e) {
-                    return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                    return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                 }
-            }).apply(maybeArgs));
+            }).apply(maybeArgs);
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
         }
@@ -1,15 +1,22 @@
 package com.xqmsg.sdk.v2.services;
 
 import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.caching.KeyCache;
+import com.xqmsg.sdk.v2.common.Lanes;
+import com.xqmsg.sdk.v2.exceptions.StatusCodeException;
 import com.xqmsg.sdk.v2.utils.Destination;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 
@@ -60,7 +67,7 @@ public class FetchKey extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
@@ -69,32 +76,13 @@ public class FetchKey extends XQModule {
 
                                         String locatorToken = (String) args.get(LOCATOR_TOKEN);
 
-                                        final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, encode(locatorToken));
-
-                                        ServerResponse serverResponse = sdk.call(sdk.VALIDATION_SERVER_URL,
-                                                Optional.of(DYNAMIC_SERVICE_NAME),
-                                                CallMethod.Get,
-                                                Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
-                                                Optional.of(Destination.XQ),
-                                                Optional.of(Map.of()));
-
-                                        switch (serverResponse.status) {
-                                            case Ok: {
-                                                String key = (String) serverResponse.payload.get(ServerResponse.DATA);
-                                                if (key.startsWith(".")) key = key.substring(2);
-                                                return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, key));
-                                            }
-                                            case Error:
-                                            default: {
-                                                return serverResponse;
-                                            }
-                                        }
+                                        return fetch(locatorToken, authorizationToken);
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -103,6 +91,109 @@ public class FetchKey extends XQModule {
     }
 
 
+    /**
+     * Fetches the key of a locator token with an authorization token the caller already holds,
+     * skipping the validation and authorization `supplyAsync` does; used by modules which fetch many keys at once.
+     */
+    CompletableFuture<ServerResponse> fetch(String locatorToken, String authorizationToken) {
+
+        final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, encode(locatorToken));
+
+        final Optional<KeyCache> keyCache = sdk.getKeyCache();
+        final String profile = keyCache.isPresent() ? activeProfile() : null;
+        final long generation = profile != null ? keyCache.get().generation() : 0;
+
+        if (profile != null) {
+            String cachedKey = keyCache.get().get(locatorToken, profile);
+            if (cachedKey != null) {
+                return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, cachedKey)));
+            }
+        }
+
+        // concurrent requests for the same key by the same user share one round trip
+        return sdk.getSingleFlight().execute(
+                String.format("%s/%s %s", sdk.VALIDATION_SERVER_URL, DYNAMIC_SERVICE_NAME, authorizationToken),
+                () -> sdk.callAsync(sdk.VALIDATION_SERVER_URL,
+                        Optional.of(DYNAMIC_SERVICE_NAME),
+                        CallMethod.Get,
+                        Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
+                        Optional.of(Destination.XQ),
+                        Optional.of(Map.of()))
+                        .thenApply((serverResponse) -> {
+                            switch (serverResponse.status) {
+                                case Ok: {
+                                    String key = (String) serverResponse.payload.get(ServerResponse.DATA);
+                                    if (key.startsWith(".")) key = key.substring(2);
+                                    if (profile != null) {
+                                        remember(keyCache.get(), locatorToken, profile, key, generation);
+                                    }
+                                    return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, key));
+                                }
+                                case Error:
+                                default: {
+                                    return serverResponse;
+                                }
+                            }
+                        }));
+    }
+
+
+    /**
+     * Fetches the keys of many locator tokens with at most `lanes` requests in flight, see {@link Lanes}.
+     *
+     * @return one future per distinct locator token, in order of first appearance. A failed fetch completes
+     * its future with an error response rather than exceptionally.
+     */
+    LinkedHashMap<String, CompletableFuture<ServerResponse>> fetchAll(Collection<String> locatorTokens, String authorizationToken, int lanes) {
+
+        final LinkedHashMap<String, CompletableFuture<ServerResponse>> keys = new LinkedHashMap<>();
+        for (String locatorToken : locatorTokens) {
+            keys.putIfAbsent(locatorToken, new CompletableFuture<>());
+        }
+
+        Lanes.drain(new ArrayList<>(keys.entrySet()), lanes,
+                (fetch) -> fetch(fetch.getKey(), authorizationToken)
+                        .whenComplete((response, e) -> {
+                            if (e != null || response.status != CallStatus.Ok) {
+                                logger.warning(String.format("failed to fetch key, reason: %s", e != null ? e.getMessage() : response.moreInfo()));
+                            }
+                            fetch.getValue().complete(e == null
+                                    ? response
+                                    : new ServerResponse(CallStatus.Error, Reasons.LocalException, e.getMessage()));
+                        }),
+                sdk.getIoExecutor());
+
+        return keys;
+    }
+
+
+    /**
+     * Caches the key for as long as the server says it remains valid.<br>
+     * The expiration is checked after the key has been fetched, so a key deleted on receipt
+     * ( or which cannot be checked for any other reason ) is never cached; neither is one whose locator token
+     * was uploaded with `dor` or revoked after `generation` was taken, see {@link KeyCache#put(String, String, String, long, long)}.
+     */
+    private void remember(KeyCache keyCache, String locatorToken, String profile, String key, long generation) {
+        CheckKeyExpiration.with(sdk)
+                .supplyAsync(Optional.of(Map.of(CheckKeyExpiration.LOCATOR_TOKEN, locatorToken)))
+                .thenAccept((expirationResponse) -> {
+                    if (expirationResponse.status == CallStatus.Ok) {
+                        Object expiresIn = expirationResponse.payload.get(CheckKeyExpiration.EXPIRES_IN);
+                        if (expiresIn instanceof Number) {
+                            keyCache.put(locatorToken, profile, key, TimeUnit.SECONDS.toMillis(((Number) expiresIn).longValue()), generation);
+                        }
+                    }
+                });
+    }
+
+    private String activeProfile() {
+        try {
+            return cache.getActiveProfile(false);
+        } catch (StatusCodeException e) {
+            return null;
+        }
+    }
+
     @Override
     public String moduleName() {
         return "FetchKey";
@@ -2,16 +2,26 @@ package com.xqmsg.sdk.v2.services;
 
 import com.xqmsg.sdk.v2.*;
 import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
 import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
 import com.xqmsg.sdk.v2.utils.Destination;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -31,6 +41,9 @@ public class FileEncrypt extends XQModule {
     public static final String RECIPIENTS = "recipients";
     public static final String DELETE_ON_RECEIPT = "dor";
     public static final String MESSAGE_EXPIRATION_HOURS = "expires";
+    public static final String PIPELINED = "pipelined";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     private final AlgorithmEnum algorithm;
 
@@ -64,6 +77,7 @@ public class FileEncrypt extends XQModule {
      *                  List<String> recipients! - List of emails of those recipients who are allowed to access the key.<br>
      *                  Long expires! - The number of hours that this key will remain valid for. After this time, it will no longer be accessible.<br>
      *                  Boolean dor? [false] - Should the content be deleted after opening.<br>
+     *                  Boolean pipelined? [false] - Encrypt the content while the key is being uploaded ( see {@link #encryptPipelined} ).<br>
      *                  </pre>
      * @returns CompletableFuture&lt;ServerResponse#payload:{data:File}>
      * @apiNote !=required ?=optional [...]=default {...} map
@@ -84,11 +98,12 @@ public class FileEncrypt extends XQModule {
                                         final List<String> recipients = (List<String>) args.get(RECIPIENTS);
                                         final Integer expiration = (Integer) args.get(MESSAGE_EXPIRATION_HOURS);
                                         final boolean deleteOnReceipt = args.get(DELETE_ON_RECEIPT) != null && (boolean) args.getOrDefault(DELETE_ON_RECEIPT, false);
+                                        final boolean pipelined = args.get(PIPELINED) != null && (boolean) args.getOrDefault(PIPELINED, false);
                                         final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
 
-                                        return FetchQuantumEntropy
-                                                .with(sdk)
-                                                .supplyAsync(Optional.empty())
+                                        return sdk.getEntropyPool()
+                                                .map(EntropyPool::take)
+                                                .orElseGet(() -> FetchQuantumEntropy.with(sdk).supplyAsync(Optional.empty()))
                                                 .thenCompose((keyResponse) -> {
                                                     switch (keyResponse.status) {
                                                         case Ok: {
@@ -96,12 +111,16 @@ public class FileEncrypt extends XQModule {
                                                             try {
                                                                 String expandedKey = algorithm.expandKey(initialKey, (int) (Files.size(sourceFilePath) > 4096 ? 4096 : Math.max(2048, Files.size(sourceFilePath))));
                                                                 logger.info(String.format("expanded key:  %s", expandedKey));
-                                                                return UploadKey.with(sdk)
+                                                                CompletableFuture<ServerResponse> upload = UploadKey.with(sdk)
                                                                         .supplyAsync(Optional.of(Map.of(
                                                                                 KEY, algorithm.prefix() + expandedKey,
                                                                                 RECIPIENTS, recipients.stream().collect(Collectors.joining(",")),
                                                                                 MESSAGE_EXPIRATION_HOURS, expiration,
-                                                                                DELETE_ON_RECEIPT, deleteOnReceipt)))
+                                                                                DELETE_ON_RECEIPT, deleteOnReceipt)));
+                                                                if (pipelined) {
+                                                                    return encryptPipelined(algorithm, sourceFilePath, targetFilePath, expandedKey, upload);
+                                                                }
+                                                                return upload
                                                                         .thenCompose((uploadResponse) -> {
                                                                             switch (uploadResponse.status) {
                                                                                 case Ok: {
@@ -118,6 +137,7 @@ public class FileEncrypt extends XQModule {
                                                                         });
                                                             } catch (IOException e) {
                                                                 e.printStackTrace();
+                                                                return CompletableFuture.completedFuture(new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage()));
                                                             }
                                                         }
                                                         default: {
@@ -137,6 +157,85 @@ public class FileEncrypt extends XQModule {
 
     }
 
+    /**
+     * Encrypts the content into a temporary file next to the target while the key is being uploaded,
+     * then writes the locator token followed by the encrypted content to the target.<br>
+     * The target is identical to what the sequential path produces; the price is one extra copy of the encrypted content on disk,
+     * which pays off when the upload takes about as long as the encryption.
+     */
+    private CompletableFuture<ServerResponse> encryptPipelined(XQAlgorithm algorithm, Path sourceFilePath, Path targetFilePath, String expandedKey, CompletableFuture<ServerResponse> upload) {
+
+        CompletableFuture<Path> body = CompletableFuture.supplyAsync(() -> {
+            Path bodyFilePath = null;
+            try {
+                bodyFilePath = Files.createTempFile(targetFilePath.toAbsolutePath().getParent(), targetFilePath.getFileName().toString(), ".part");
+                try (InputStream in = Files.newInputStream(sourceFilePath);
+                     OutputStream out = algorithm.encryptingBodyStream(
+                             new BufferedOutputStream(Files.newOutputStream(bodyFilePath), BUFFER_SIZE), expandedKey, sourceFilePath.getFileName().toString())) {
+                    in.transferTo(out);
+                }
+                return bodyFilePath;
+            } catch (IOException e) {
+                deleteQuietly(bodyFilePath);
+                throw new UncheckedIOException(e);
+            }
+        }, sdk.getIoExecutor());
+
+        return body
+                .thenCombineAsync(upload, (bodyFilePath, uploadResponse) -> {
+                    try {
+                        if (uploadResponse.status != CallStatus.Ok) {
+                            return uploadResponse;
+                        }
+                        final String locatorToken = (String) uploadResponse.payload.get(ServerResponse.DATA);
+                        logger.info(String.format("validateUploadStep=>locator: %s", locatorToken));
+                        try (FileChannel target = FileChannel.open(targetFilePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                             FileChannel source = FileChannel.open(bodyFilePath, StandardOpenOption.READ)) {
+                            algorithm.writeLocatorToken(Channels.newOutputStream(target), locatorToken);
+                            final long size = source.size();
+                            long position = 0;
+                            while (position < size) {
+                                position += source.transferTo(position, size - position, target);
+                            }
+                        }
+                        return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, targetFilePath));
+                    } catch (IOException e) {
+                        logger.warning(e.getMessage());
+                        return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage());
+                    }
+                }, sdk.getIoExecutor())
+                .exceptionally((e) -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof UncheckedIOException) {
+                        cause = cause.getCause();
+                    }
+                    logger.warning(cause.getMessage());
+                    if (cause instanceof NoSuchFileException) {
+                        return sourceFilePath.toString().equals(((NoSuchFileException) cause).getFile())
+                                ? new ServerResponse(CallStatus.Error, Reasons.SourceFileNotFound, cause.getMessage())
+                                : new ServerResponse(CallStatus.Error, Reasons.FileNotFound, cause.getMessage());
+                    }
+                    return new ServerResponse(CallStatus.Error, Reasons.IOException, cause.getMessage());
+                })
+                // the temporary file goes whatever the outcome, including an upload failing before the body is written,
+                // and it is gone by the time the caller sees the response
+                .thenCompose((response) -> body.handle((bodyFilePath, e) -> {
+                    deleteQuietly(bodyFilePath);
+                    return response;
+                }));
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warning(e.getMessage());
+        }
+    }
+
     @Override
     public String moduleName() {
         return "Encrypt";
@@ -0,0 +1,100 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.OTPv2Encryption;
+import com.xqmsg.sdk.v2.algorithms.OTPv2RangeReader;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Opens an OTPv2 encrypted file for range decryption.<br>
+ * Only the header is read and the key fetched; byte ranges of the content are then decrypted on demand
+ * through the returned {@link OTPv2RangeReader}, which the caller must close.
+ */
+public class FileRangeDecrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String SOURCE_FILE_PATH = "sourceFilePath";
+
+    private FileRangeDecrypt(XQSDK sdk) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(SOURCE_FILE_PATH);
+    }
+
+    /**
+     * @param sdk App Settings
+     * @returns this
+     */
+    public static FileRangeDecrypt with(XQSDK sdk) {
+        return new FileRangeDecrypt(sdk);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  Path sourceFilePath! - Path to the OTPv2 encrypted file.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:OTPv2RangeReader}>
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeArgs.get();
+
+                                        Path sourceFilePath = (Path) args.get(SOURCE_FILE_PATH);
+                                        OTPv2Encryption algorithm = (OTPv2Encryption) sdk.getAlgorithm(AlgorithmEnum.OTPv2);
+
+                                        return algorithm.openRange(sourceFilePath,
+                                                (aLocatorToken) -> FetchKey.with(sdk)
+                                                        .supplyAsync(Optional.of(Map.of(FetchKey.LOCATOR_TOKEN, aLocatorToken)))
+                                                        .thenApply(fetchKeyResponse -> {
+                                                            switch (fetchKeyResponse.status) {
+                                                                case Ok: {
+                                                                    return (String) fetchKeyResponse.payload.get(ServerResponse.DATA);
+                                                                }
+                                                                default: {
+                                                                    logger.warning(String.format("failed to fetch key, reason: %s", fetchKeyResponse.moreInfo()));
+                                                                    return null;
+                                                                }
+                                                            }
+                                                        }));
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    @Override
+    public String moduleName() {
+        return "FileRangeDecrypt";
+    }
+
+}
@@ -54,13 +54,13 @@ public class GetUserInfo extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
                                     .andThen((authorizationToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", authorizationToken));
-                                        return sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                                                 Optional.of(SERVICE_NAME),
                                                 CallMethod.Get,
                                                 Optional.of(headerProperties),
@@ -69,9 +69,9 @@ public class GetUserInfo extends XQModule {
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -60,7 +60,7 @@ public class GrantUserAccess extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
@@ -73,7 +73,7 @@ public class GrantUserAccess extends XQModule {
 
                                         final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, encode(locatorToken));
 
-                                        return sdk.call(sdk.VALIDATION_SERVER_URL,
+                                        return sdk.callAsync(sdk.VALIDATION_SERVER_URL,
                                                 Optional.of(DYNAMIC_SERVICE_NAME),
                                                 CallMethod.Options,
                                                 Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
@@ -84,9 +84,9 @@ public class GrantUserAccess extends XQModule {
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -60,7 +60,7 @@ public class RevokeUserAccess extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
@@ -72,20 +72,24 @@ public class RevokeUserAccess extends XQModule {
 
                                         final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, encode(locatorToken));
 
-                                        return sdk.call(sdk.VALIDATION_SERVER_URL,
+                                        // invalidated again once the server is done, so a fetch racing the revocation is not cached either
+                                        sdk.getKeyCache().ifPresent(keyCache -> keyCache.invalidate(locatorToken));
+
+                                        return sdk.callAsync(sdk.VALIDATION_SERVER_URL,
                                                 Optional.of(DYNAMIC_SERVICE_NAME),
                                                 CallMethod.Options,
                                                 Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
                                                 Optional.of(Destination.XQ),
                                                 Optional.of(Map.of(
                                                         RECIPIENTS, recipients.stream().collect(Collectors.joining(","))
-                                                )));
+                                                )))
+                                                .whenComplete((response, e) -> sdk.getKeyCache().ifPresent(keyCache -> keyCache.invalidate(locatorToken)));
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -0,0 +1,126 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.algorithms.XQDecryptingInputStream;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Opens an {@link XQDecryptingInputStream} on top of an encrypted stream, using the {@link AlgorithmEnum} provided.<br>
+ * Only the container header is read up front; the content is decrypted as the caller reads it.
+ */
+public class StreamDecrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String SOURCE_STREAM = "sourceStream";
+
+    private final AlgorithmEnum algorithm;
+
+    private StreamDecrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(SOURCE_STREAM);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static StreamDecrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new StreamDecrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  InputStream sourceStream! - The encrypted container, positioned at its start.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:XQDecryptingInputStream}>
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+                                        Map<String, Object> args = maybeArgs.get();
+
+                                        final InputStream sourceStream = (InputStream) args.get(SOURCE_STREAM);
+                                        final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+
+                                        // reading the header may block on the source, so it is done on the I/O executor
+                                        return CompletableFuture
+                                                .supplyAsync(() -> {
+                                                    try {
+                                                        return algorithm.readLocatorToken(sourceStream);
+                                                    } catch (IOException e) {
+                                                        throw new UncheckedIOException(e);
+                                                    }
+                                                }, sdk.getIoExecutor())
+                                                .thenCompose((locatorToken) -> FetchKey.with(sdk)
+                                                        .supplyAsync(Optional.of(Map.of(FetchKey.LOCATOR_TOKEN, locatorToken)))
+                                                        .thenApply((fetchKeyResponse) -> {
+                                                            switch (fetchKeyResponse.status) {
+                                                                case Ok: {
+                                                                    String key = (String) fetchKeyResponse.payload.get(ServerResponse.DATA);
+                                                                    try {
+                                                                        XQDecryptingInputStream stream = new XQDecryptingInputStream(algorithm, sourceStream, locatorToken, key);
+                                                                        return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, stream));
+                                                                    } catch (IOException e) {
+                                                                        logger.warning(e.getMessage());
+                                                                        return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage());
+                                                                    }
+                                                                }
+                                                                default: {
+                                                                    logger.warning(String.format("failed to fetch key, reason: %s", fetchKeyResponse.moreInfo()));
+                                                                    return fetchKeyResponse;
+                                                                }
+                                                            }
+                                                        }))
+                                                .exceptionally((e) -> {
+                                                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                                                    logger.warning(cause.getMessage());
+                                                    return new ServerResponse(CallStatus.Error, Reasons.IOException, cause.getMessage());
+                                                });
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    @Override
+    public String moduleName() {
+        return "StreamDecrypt";
+    }
+
+}
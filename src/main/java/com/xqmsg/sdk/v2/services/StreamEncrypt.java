@@ -0,0 +1,151 @@
+package com.xqmsg.sdk.v2.services;
+
+import com.xqmsg.sdk.v2.*;
+import com.xqmsg.sdk.v2.algorithms.XQAlgorithm;
+import com.xqmsg.sdk.v2.algorithms.XQEncryptingOutputStream;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
+import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
+import com.xqmsg.sdk.v2.utils.Destination;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Opens an {@link XQEncryptingOutputStream} on top of the given stream, using the {@link AlgorithmEnum} provided.<br>
+ * Unlike {@link FileEncrypt}, the content does not have to be staged anywhere: it is encrypted as it is written.
+ */
+public class StreamEncrypt extends XQModule {
+
+    private final Logger logger = Logger.getLogger(getClass().getName(), null);
+
+    public static final String KEY = "key";
+    public static final String TARGET_STREAM = "targetStream";
+    public static final String FILE_NAME = "fileName";
+    public static final String USER = "user";
+    public static final String RECIPIENTS = "recipients";
+    public static final String DELETE_ON_RECEIPT = "dor";
+    public static final String MESSAGE_EXPIRATION_HOURS = "expires";
+
+    /**
+     * The size of the content is not known up front, so the key is always expanded to the largest size `FileEncrypt` uses.
+     */
+    private static final int KEY_LENGTH = 4096;
+
+    private final AlgorithmEnum algorithm;
+
+    private StreamEncrypt(XQSDK sdk, AlgorithmEnum algorithm) {
+        assert sdk != null : "An instance of the XQSDK is required";
+        super.sdk = sdk;
+        super.cache = sdk.getCache();
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public List<String> requiredFields() {
+        return asList(USER, TARGET_STREAM, RECIPIENTS, MESSAGE_EXPIRATION_HOURS);
+    }
+
+    /**
+     * @param sdk       App Settings
+     * @param algorithm the {@link AlgorithmEnum} used to encrypt the data.
+     * @returns this
+     */
+    public static StreamEncrypt with(XQSDK sdk, AlgorithmEnum algorithm) {
+        return new StreamEncrypt(sdk, algorithm);
+    }
+
+    /**
+     * @param maybeArgs Map of request parameters supplied to this method.
+     *                  <pre>parameter details:<br>
+     *                  String user! - Email of the validated user and author of the message.<br>
+     *                  OutputStream targetStream! - The stream receiving the encrypted container.<br>
+     *                  String fileName? [""] - The name embedded in the container ( OTPv2 only ).<br>
+     *                  List<String> recipients! - List of emails of those recipients who are allowed to access the key.<br>
+     *                  Long expires! - The number of hours that this key will remain valid for. After this time, it will no longer be accessible.<br>
+     *                  Boolean dor? [false] - Should the content be deleted after opening.<br>
+     *                  </pre>
+     * @returns CompletableFuture&lt;ServerResponse#payload:{data:XQEncryptingOutputStream, locatorKey:String}>
+     * @apiNote !=required ?=optional [...]=default {...} map
+     */
+    @Override
+    public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
+
+        try {
+            return validate
+                    .andThen((maybeValid) -> {
+                        try {
+                            return authorize
+                                    .andThen((authorizationToken) -> {
+
+                                        Map<String, Object> args = maybeArgs.get();
+                                        final OutputStream targetStream = (OutputStream) args.get(TARGET_STREAM);
+                                        final String fileName = (String) args.getOrDefault(FILE_NAME, "");
+                                        @SuppressWarnings("unchecked")
+                                        final List<String> recipients = (List<String>) args.get(RECIPIENTS);
+                                        final Integer expiration = (Integer) args.get(MESSAGE_EXPIRATION_HOURS);
+                                        final boolean deleteOnReceipt = args.get(DELETE_ON_RECEIPT) != null && (boolean) args.getOrDefault(DELETE_ON_RECEIPT, false);
+                                        final XQAlgorithm algorithm = sdk.getAlgorithm(this.algorithm);
+
+                                        return sdk.getEntropyPool()
+                                                .map(EntropyPool::take)
+                                                .orElseGet(() -> FetchQuantumEntropy.with(sdk).supplyAsync(Optional.empty()))
+                                                .thenCompose((keyResponse) -> {
+                                                    switch (keyResponse.status) {
+                                                        case Ok: {
+                                                            final String initialKey = (String) keyResponse.payload.get(ServerResponse.DATA);
+                                                            final String expandedKey = algorithm.expandKey(initialKey, KEY_LENGTH);
+                                                            return UploadKey.with(sdk)
+                                                                    .supplyAsync(Optional.of(Map.of(
+                                                                            KEY, algorithm.prefix() + expandedKey,
+                                                                            RECIPIENTS, recipients.stream().collect(Collectors.joining(",")),
+                                                                            MESSAGE_EXPIRATION_HOURS, expiration,
+                                                                            DELETE_ON_RECEIPT, deleteOnReceipt)))
+                                                                    .thenApply((uploadResponse) -> {
+                                                                        switch (uploadResponse.status) {
+                                                                            case Ok: {
+                                                                                final String locatorToken = (String) uploadResponse.payload.get(ServerResponse.DATA);
+                                                                                try {
+                                                                                    XQEncryptingOutputStream stream = new XQEncryptingOutputStream(algorithm, targetStream, expandedKey, locatorToken, fileName);
+                                                                                    return new ServerResponse(CallStatus.Ok, Map.of(ServerResponse.DATA, stream, Encrypt.LOCATOR_KEY, locatorToken));
+                                                                                } catch (IOException e) {
+                                                                                    logger.warning(e.getMessage());
+                                                                                    return new ServerResponse(CallStatus.Error, Reasons.IOException, e.getMessage());
+                                                                                }
+                                                                            }
+                                                                            default: {
+                                                                                return uploadResponse;
+                                                                            }
+                                                                        }
+                                                                    });
+                                                        }
+                                                        default: {
+                                                            return CompletableFuture.completedFuture(keyResponse);
+                                                        }
+                                                    }
+                                                });
+                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+                        } catch (RuntimeException e) {
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
+                        }
+                    }).apply(maybeArgs);
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
+        }
+
+    }
+
+    @Override
+    public String moduleName() {
+        return "StreamEncrypt";
+    }
+
+}
@@ -52,13 +52,13 @@ public class UpdateSettings extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
                                     .andThen((authorizationToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", authorizationToken));
-                                        return sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
+                                        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
                                                 Optional.of(SERVICE_NAME),
                                                 CallMethod.Options,
                                                 Optional.of(headerProperties),
@@ -67,9 +67,9 @@ public class UpdateSettings extends XQModule {
                                     }).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -60,26 +60,8 @@ public class UploadKey extends XQModule {
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
-                                    .andThen((authorizationToken) -> {
-                                        ServerResponse uploadResponse = sdk.call(sdk.SUBSCRIPTION_SERVER_URL,
-                                                Optional.of(SERVICE_NAME),
-                                                CallMethod.Post,
-                                                Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
-                                                Optional.of(Destination.XQ),
-                                                maybeArgs);
-
-                                        switch (uploadResponse.status) {
-                                            case Ok: {
-                                                final String packet = (String) uploadResponse.payload.get(ServerResponse.DATA);
-                                                return ValidatePacket
-                                                        .with(sdk)
-                                                        .supplyAsync(Optional.of(Map.of(ValidatePacket.PACKET, packet)));
-                                            }
-                                            default: {
-                                                return CompletableFuture.completedFuture(uploadResponse);
-                                            }
-                                        }
-                                    }).apply(Optional.of(Destination.XQ), maybeValid);
+                                    .andThen((authorizationToken) -> upload(maybeArgs.get(), authorizationToken)
+                                    ).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
                             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
@@ -91,6 +73,44 @@ public class UploadKey extends XQModule {
         }
     }
 
+    /**
+     * Uploads a key with an authorization token the caller already holds, skipping the validation and authorization `supplyAsync` does;
+     * used by modules which upload many keys at once.
+     */
+    CompletableFuture<ServerResponse> upload(Map<String, Object> args, String authorizationToken) {
+        return sdk.callAsync(sdk.SUBSCRIPTION_SERVER_URL,
+                Optional.of(SERVICE_NAME),
+                CallMethod.Post,
+                Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken))),
+                Optional.of(Destination.XQ),
+                Optional.of(args))
+                .thenCompose((uploadResponse) -> {
+                    switch (uploadResponse.status) {
+                        case Ok: {
+                            final String packet = (String) uploadResponse.payload.get(ServerResponse.DATA);
+                            return ValidatePacket
+                                    .with(sdk)
+                                    .validatePacket(packet, authorizationToken)
+                                    .thenApply((validateResponse) -> excludeDeleteOnReceipt(sdk, args, validateResponse));
+                        }
+                        default: {
+                            return CompletableFuture.completedFuture(uploadResponse);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Keys which are deleted on receipt must not outlive their first read in the key cache either.
+     */
+    static ServerResponse excludeDeleteOnReceipt(XQSDK sdk, Map<String, Object> args, ServerResponse validateResponse) {
+        if (validateResponse.status == CallStatus.Ok && Boolean.TRUE.equals(args.get(DELETE_ON_RECEIPT))) {
+            final String locatorToken = (String) validateResponse.payload.get(ServerResponse.DATA);
+            sdk.getKeyCache().ifPresent(keyCache -> keyCache.exclude(locatorToken));
+        }
+        return validateResponse;
+    }
+
     @Override
     public String moduleName() {
         return "UploadKey";
@@ -48,24 +48,17 @@ public class ValidatePacket extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
-                                    .andThen((authorizationToken) ->
-                                            sdk.call(sdk.VALIDATION_SERVER_URL,
-                                                    Optional.of(SERVICE_NAME),
-                                                    CallMethod.Post,
-                                                    Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken),
-                                                            XQSDK.CONTENT_TYPE, XQSDK.TEXT_PLAIN_UTF_8)),
-                                                    Optional.of(Destination.XQ),
-                                                    maybeArgs)
+                                    .andThen((authorizationToken) -> validatePacket((String) maybeArgs.get().get(PACKET), authorizationToken)
                                     ).apply(Optional.of(Destination.XQ), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -73,6 +66,18 @@ public class ValidatePacket extends XQModule {
 
     }
 
+    /**
+     * Validates a packet with an authorization token the caller already holds, skipping the validation and authorization `supplyAsync` does.
+     */
+    CompletableFuture<ServerResponse> validatePacket(String packet, String authorizationToken) {
+        return sdk.callAsync(sdk.VALIDATION_SERVER_URL,
+                Optional.of(SERVICE_NAME),
+                CallMethod.Post,
+                Optional.of(Map.of("Authorization", String.format("Bearer %s", authorizationToken),
+                        XQSDK.CONTENT_TYPE, XQSDK.TEXT_PLAIN_UTF_8)),
+                Optional.of(Destination.XQ),
+                Optional.of(Map.of(PACKET, packet)));
+    }
 
     @Override
     public String moduleName() {
@@ -59,13 +59,13 @@ public class AddUserGroup extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
                                     .andThen((dashboardAccessToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", dashboardAccessToken));
-                                        return sdk.call(sdk.DASHBOARD_SERVER_URL,
+                                        return sdk.callAsync(sdk.DASHBOARD_SERVER_URL,
                                                 Optional.of(SERVICE_NAME),
                                                 CallMethod.Post,
                                                 Optional.of(headerProperties),
@@ -75,9 +75,9 @@ public class AddUserGroup extends XQModule {
                                     .apply(Optional.of(Destination.DASHBOARD), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
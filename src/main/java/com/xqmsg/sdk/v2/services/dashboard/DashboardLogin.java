@@ -56,36 +56,34 @@ public class DashboardLogin extends XQModule {
     @Override
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
         try {
-            ServerResponse serverResponse =
-                    authorize
-                            .andThen((xqAccessToken) -> {
-                                        Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", xqAccessToken));
-                                        return sdk.call(sdk.DASHBOARD_SERVER_URL,
-                                                Optional.of(SERVICE_NAME),
-                                                CallMethod.Get,
-                                                Optional.of(headerProperties),
-                                                Optional.of(Destination.DASHBOARD),
-                                                Optional.of((Map.of("request", "sub"))));
-                                    }
-                            ).apply(Optional.of(Destination.XQ), maybeArgs);
-
-
-            switch (serverResponse.status) {
-                case Ok: {
-                    String dashboardAccessToken = (String) serverResponse.payload.get(ServerResponse.DATA);
-                    try {
-                        String activeProfile = cache.getActiveProfile(true);
-                        cache.putDashboardAccess(activeProfile, dashboardAccessToken);
-                        return CompletableFuture.completedFuture(serverResponse);
-                    } catch (Exception e) {
-                        return null;
-                    }
-                }
-                default: {
-                    return CompletableFuture.completedFuture(serverResponse);
-                }
-            }
-
+            return authorize
+                    .andThen((xqAccessToken) -> {
+                                Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", xqAccessToken));
+                                return sdk.callAsync(sdk.DASHBOARD_SERVER_URL,
+                                        Optional.of(SERVICE_NAME),
+                                        CallMethod.Get,
+                                        Optional.of(headerProperties),
+                                        Optional.of(Destination.DASHBOARD),
+                                        Optional.of((Map.of("request", "sub"))));
+                            }
+                    ).apply(Optional.of(Destination.XQ), maybeArgs)
+                    .thenApply((serverResponse) -> {
+                        switch (serverResponse.status) {
+                            case Ok: {
+                                String dashboardAccessToken = (String) serverResponse.payload.get(ServerResponse.DATA);
+                                try {
+                                    String activeProfile = cache.getActiveProfile(true);
+                                    cache.putDashboardAccess(activeProfile, dashboardAccessToken);
+                                    return serverResponse;
+                                } catch (Exception e) {
+                                    return null;
+                                }
+                            }
+                            default: {
+                                return serverResponse;
+                            }
+                        }
+                    });
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
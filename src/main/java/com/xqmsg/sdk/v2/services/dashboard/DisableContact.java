@@ -56,14 +56,14 @@ public class DisableContact extends XQModule {
     public CompletableFuture<ServerResponse> supplyAsync(Optional<Map<String, Object>> maybeArgs) {
 
         try {
-            return CompletableFuture.completedFuture(validate
+            return validate
                     .andThen((maybeValid) -> {
                         try {
                             return authorize
                                     .andThen((dashboardAccessToken) -> {
                                         Map<String, String> headerProperties = Map.of("Authorization", String.format("Bearer %s", dashboardAccessToken));
                                         final String DYNAMIC_SERVICE_NAME = String.format("%s/%s", SERVICE_NAME, maybeValid.get().get(ID));
-                                        return sdk.call(sdk.DASHBOARD_SERVER_URL,
+                                        return sdk.callAsync(sdk.DASHBOARD_SERVER_URL,
                                                 Optional.of(DYNAMIC_SERVICE_NAME),
                                                 CallMethod.Delete,
                                                 Optional.of(headerProperties),
@@ -73,9 +73,9 @@ public class DisableContact extends XQModule {
                                     .apply(Optional.of(Destination.DASHBOARD), maybeValid);
 
                         } catch (RuntimeException e) {
-                            return unwrapException(e, CallStatus.Error, Reasons.Unauthorized);
+                            return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.Unauthorized));
                         }
-                    }).apply(maybeArgs));
+                    }).apply(maybeArgs);
 
         } catch (RuntimeException e) {
             return CompletableFuture.completedFuture(unwrapException(e, CallStatus.Error, Reasons.InvalidPayload));
@@ -0,0 +1,135 @@
+package com.xqmsg.sdk.v2.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The default {@link XQTransport}, built on a single {@link HttpClient}.<br>
+ * The client keeps its connections open and negotiates HTTP/2 where the server supports it,
+ * so all requests to the same server ( key, validation, subscription, dashboard ) are multiplexed
+ * over one persistent connection instead of paying a new TCP+TLS handshake per call.
+ */
+public class HttpClientTransport implements XQTransport {
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+  private final HttpClient client;
+
+  public HttpClientTransport() {
+    this(newBuilder().build());
+  }
+
+  /**
+   * @param executor runs the client's own work and the dependent stages of {@link #sendAsync}.
+   *                 It must not be the executor request bodies are written on, see {@link RequestBodyPublisher}.
+   */
+  public HttpClientTransport(Executor executor) {
+    this(newBuilder().executor(executor).build());
+  }
+
+  public HttpClientTransport(HttpClient client) {
+    this.client = client;
+  }
+
+  /**
+   * The request body is written by the calling thread, which has nothing else to do until the response arrives.
+   */
+  @Override
+  public TransportResponse send(String method, URL url, Map<String, String> headers, Optional<RequestBody> body) throws IOException {
+
+    final CallingThreadExecutor writer = new CallingThreadExecutor();
+    final Optional<RequestBodyPublisher> publisher = body.map((requestBody) -> new RequestBodyPublisher(requestBody, writer));
+    final HttpRequest request = buildRequest(method, url, headers, publisher);
+
+    try {
+      HttpResponse<InputStream> response = writer.runUntil(client
+              .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+              .whenComplete((ignored, e) -> publisher.ifPresent(RequestBodyPublisher::release)));
+      return new TransportResponse(response.statusCode(), response.body(), null);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(String.format("Interrupted while calling %s", url));
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * The returned future completes as soon as the response headers have arrived, without any thread blocking on the socket.
+   * The body is then read straight from the stream the client fills as the data comes in; it is never collected in memory first.
+   * Reading it blocks, so it must be done on `executor` ( as the request body is written ), never on the client's own threads.
+   */
+  @Override
+  public CompletableFuture<TransportResponse> sendAsync(String method, URL url, Map<String, String> headers, Optional<RequestBody> body, Executor executor) {
+
+    final Optional<RequestBodyPublisher> publisher = body.map((requestBody) -> new RequestBodyPublisher(requestBody, executor));
+    final HttpRequest request;
+    try {
+      request = buildRequest(method, url, headers, publisher);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    return client
+            .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+            .whenComplete((ignored, e) -> publisher.ifPresent(RequestBodyPublisher::release))
+            .thenApply(response -> new TransportResponse(response.statusCode(), response.body(), null));
+  }
+
+  private static HttpClient.Builder newBuilder() {
+    return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT);
+  }
+
+  protected HttpRequest buildRequest(String method, URL url, Map<String, String> headers, Optional<? extends HttpRequest.BodyPublisher> body) throws IOException {
+    try {
+      HttpRequest.Builder builder = HttpRequest.newBuilder(url.toURI())
+              .method(method, body.isPresent() ? body.get() : HttpRequest.BodyPublishers.noBody());
+      headers.forEach(builder::header);
+      return builder.build();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      throw new IOException(String.format("Invalid request %s %s: %s", method, url, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Hands the tasks given to it to the thread blocked in {@link #send}.
+   */
+  private static final class CallingThreadExecutor implements Executor {
+
+    private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    /**
+     * Runs the tasks handed over until `done` completes.
+     */
+    <T> T runUntil(CompletableFuture<T> done) throws InterruptedException, ExecutionException {
+      done.whenComplete((result, e) -> tasks.add(() -> {
+      }));
+      while (!done.isDone()) {
+        tasks.take().run();
+      }
+      return done.get();
+    }
+  }
+
+}
@@ -0,0 +1,52 @@
+package com.xqmsg.sdk.v2.transport;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Fallback {@link XQTransport} which opens a fresh {@link HttpsURLConnection} per call
+ * and disconnects it once the response has been read.<br>
+ * Request bodies are streamed to the socket, in fixed-length mode when their size is known and chunked otherwise.<br>
+ * Its calls block, so {@link #sendAsync} runs them on the executor the SDK hands in ( the I/O executor ).<br>
+ * Enable it with `com.xq-msg.sdk.v2.transport-key=com.xqmsg.sdk.v2.transport.HttpsURLConnectionTransport`.
+ */
+public class HttpsURLConnectionTransport implements XQTransport {
+
+  @Override
+  public TransportResponse send(String method, URL url, Map<String, String> headers, Optional<RequestBody> body) throws IOException {
+
+    final HttpsURLConnection httpsConnection = (HttpsURLConnection) url.openConnection();
+
+    try {
+      httpsConnection.setRequestMethod(method);
+      headers.forEach(httpsConnection::setRequestProperty);
+
+      if (body.isPresent()) {
+        RequestBody requestBody = body.get();
+        httpsConnection.setDoOutput(true);
+        if (requestBody.contentLength() >= 0) {
+          httpsConnection.setFixedLengthStreamingMode(requestBody.contentLength());
+        } else {
+          httpsConnection.setChunkedStreamingMode(0);
+        }
+        try (OutputStream os = httpsConnection.getOutputStream()) {
+          requestBody.writeTo(os);
+        }
+      }
+
+      int statusCode = httpsConnection.getResponseCode();
+      return new TransportResponse(statusCode,
+              statusCode < 200 || statusCode > 299 ? httpsConnection.getErrorStream() : httpsConnection.getInputStream(),
+              httpsConnection::disconnect);
+
+    } catch (IOException e) {
+      httpsConnection.disconnect();
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.xqmsg.sdk.v2.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A request body which writes itself to the wire instead of being handed to the transport as one big array.<br>
+ * Transports use {@link #contentLength()} to choose between fixed-length and chunked streaming.
+ */
+public interface RequestBody {
+
+  /**
+   * @return the number of bytes {@link #writeTo} will produce, or -1 if it is not known up front.
+   */
+  long contentLength();
+
+  /**
+   * Writes the body to the given stream. The stream is not closed.
+   */
+  void writeTo(OutputStream out) throws IOException;
+
+  /**
+   * @param bytes an already encoded body.
+   * @return a fixed-length body backed by the given array ( which is not copied ).
+   */
+  static RequestBody of(byte[] bytes) {
+    return new RequestBody() {
+      @Override
+      public long contentLength() {
+        return bytes.length;
+      }
+
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, bytes.length);
+      }
+    };
+  }
+
+}
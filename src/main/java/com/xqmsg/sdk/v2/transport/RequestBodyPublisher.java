@@ -0,0 +1,249 @@
+package com.xqmsg.sdk.v2.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Streams a {@link RequestBody} to the {@link java.net.http.HttpClient} in fixed-size chunks instead of buffering it whole.<br>
+ * Every subscription writes the body afresh on the given executor. The writer waits while {@link #MAX_CHUNKS_AHEAD} chunks
+ * are queued and the client has not asked for more, so no more than those few chunks are held at any time, whatever the size of the body.
+ * The executor must therefore be one the client itself never runs on, or waiting writers could hold every thread the client needs to ask for more.<br>
+ * The content length is declared when the body knows it, otherwise the body is sent chunked.
+ */
+public class RequestBodyPublisher implements HttpRequest.BodyPublisher {
+
+  public static final int CHUNK_SIZE = 16 * 1024;
+  public static final int MAX_CHUNKS_AHEAD = 4;
+
+  private final RequestBody body;
+  private final Executor executor;
+  private final Set<ChunkSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+  private volatile boolean released;
+
+  /**
+   * @param body     the body to publish.
+   * @param executor runs the writer, which waits while the client is behind.
+   */
+  public RequestBodyPublisher(RequestBody body, Executor executor) {
+    this.body = body;
+    this.executor = executor;
+  }
+
+  @Override
+  public long contentLength() {
+    return body.contentLength();
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    final ChunkSubscription subscription = new ChunkSubscription(subscriber);
+    subscriptions.add(subscription);
+    subscriber.onSubscribe(subscription);
+    if (released) {
+      subscription.cancel();
+    }
+    try {
+      executor.execute(subscription::write);
+    } catch (RejectedExecutionException e) {
+      subscriptions.remove(subscription);
+      subscription.fail(e);
+    }
+  }
+
+  /**
+   * Stops every writer still waiting for the client, once the exchange no longer needs the body ( e.g. the server has answered early ).
+   */
+  void release() {
+    released = true;
+    subscriptions.forEach(ChunkSubscription::cancel);
+  }
+
+  private final class ChunkSubscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    // all guarded by this
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private long demand;
+    private boolean written;
+    private Throwable failure;
+    private boolean cancelled;
+    private boolean terminated;
+    private boolean draining;
+
+    ChunkSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException(String.format("Non-positive request: %d", n)));
+        return;
+      }
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        chunks.clear();
+        notifyAll();
+      }
+    }
+
+    void write() {
+      try (OutputStream out = new ChunkOutputStream(this)) {
+        body.writeTo(out);
+      } catch (IOException | RuntimeException e) {
+        fail(e);
+        return;
+      } finally {
+        subscriptions.remove(this);
+      }
+      synchronized (this) {
+        written = true;
+      }
+      drain();
+    }
+
+    void fail(Throwable e) {
+      synchronized (this) {
+        if (failure == null) {
+          failure = e;
+        }
+        notifyAll();
+      }
+      drain();
+    }
+
+    /**
+     * Queues a full chunk, first waiting while the client is {@link #MAX_CHUNKS_AHEAD} chunks behind.
+     */
+    void offer(ByteBuffer chunk) throws IOException {
+      synchronized (this) {
+        try {
+          while (!cancelled && failure == null && chunks.size() >= MAX_CHUNKS_AHEAD) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while writing the request body");
+        }
+        if (cancelled || failure != null) {
+          throw new IOException("The request body is no longer read");
+        }
+        chunks.add(chunk);
+      }
+      drain();
+    }
+
+    /**
+     * Hands the queued chunks to the subscriber as far as it asked for them, then completes or fails it once nothing is left.
+     * Only one thread delivers at a time; a call made while another one is delivering ( including one from within `onNext` ) returns at once,
+     * the delivering thread picks up whatever it changed.
+     */
+    private void drain() {
+      synchronized (this) {
+        if (draining) {
+          return;
+        }
+        draining = true;
+      }
+      while (true) {
+        ByteBuffer chunk = null;
+        Throwable error = null;
+        synchronized (this) {
+          if (terminated || cancelled) {
+            draining = false;
+            return;
+          }
+          if (failure != null) {
+            terminated = true;
+            error = failure;
+          } else if (demand > 0 && !chunks.isEmpty()) {
+            chunk = chunks.poll();
+            --demand;
+            notifyAll();
+          } else if (written && chunks.isEmpty()) {
+            terminated = true;
+          } else {
+            draining = false;
+            return;
+          }
+        }
+        if (error != null) {
+          subscriber.onError(error);
+          return;
+        }
+        if (chunk == null) {
+          subscriber.onComplete();
+          return;
+        }
+        subscriber.onNext(chunk);
+      }
+    }
+  }
+
+  /**
+   * Cuts what is written into chunks of {@link #CHUNK_SIZE} bytes; the last one is queued on close.
+   */
+  private static final class ChunkOutputStream extends OutputStream {
+
+    private final ChunkSubscription subscription;
+    private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+    ChunkOutputStream(ChunkSubscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      chunk.put((byte) b);
+      if (!chunk.hasRemaining()) {
+        emit();
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        int n = Math.min(len, chunk.remaining());
+        chunk.put(b, off, n);
+        off += n;
+        len -= n;
+        if (!chunk.hasRemaining()) {
+          emit();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (chunk.position() > 0) {
+        emit();
+      }
+    }
+
+    private void emit() throws IOException {
+      chunk.flip();
+      ByteBuffer full = chunk;
+      chunk = ByteBuffer.allocate(CHUNK_SIZE);
+      subscription.offer(full);
+    }
+  }
+
+}
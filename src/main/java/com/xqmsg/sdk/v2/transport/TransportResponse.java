@@ -0,0 +1,46 @@
+package com.xqmsg.sdk.v2.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The raw result of an {@link XQTransport} exchange: the HTTP status code and the response body.<br>
+ * Closing it releases the underlying connection ( or returns it to the pool ).
+ */
+public class TransportResponse implements Closeable {
+
+  private final int statusCode;
+  private final InputStream body;
+  private final Runnable release;
+
+  public TransportResponse(int statusCode, InputStream body, Runnable release) {
+    this.statusCode = statusCode;
+    this.body = body == null ? InputStream.nullInputStream() : body;
+    this.release = release;
+  }
+
+  public int statusCode() {
+    return statusCode;
+  }
+
+  public boolean isSuccess() {
+    return statusCode >= 200 && statusCode <= 299;
+  }
+
+  public InputStream body() {
+    return body;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      body.close();
+    } finally {
+      if (release != null) {
+        release.run();
+      }
+    }
+  }
+
+}
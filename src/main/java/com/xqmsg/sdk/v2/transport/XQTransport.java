@@ -0,0 +1,48 @@
+package com.xqmsg.sdk.v2.transport;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The wire level used by {@link com.xqmsg.sdk.v2.XQSDK#call} to talk to the XQ servers.<br>
+ * The SDK builds the url, the headers and the serialized body; an implementation only has to
+ * send them and hand back the status code together with the unread response body.<br>
+ * The implementation is selected with the `com.xq-msg.sdk.v2.transport-key` property.
+ */
+public interface XQTransport {
+
+  /**
+   * @param method  The HTTP verb, upper case (e.g. `GET`, `POST`).
+   * @param url     The fully qualified url, including any query parameters.
+   * @param headers The request headers.
+   * @param body    The request body, if any.
+   * @return the response. The caller is responsible for closing it.
+   * @throws IOException if the request could not be sent or the response could not be received.
+   */
+  TransportResponse send(String method, URL url, Map<String, String> headers, Optional<RequestBody> body) throws IOException;
+
+  /**
+   * Asynchronous variant of {@link #send}. The returned future completes once the response is available;
+   * its body may still be streaming in, so the caller reads it on `executor`.<br>
+   * The default implementation runs the blocking {@link #send} on `executor`;
+   * implementations backed by a non-blocking client should override it.
+   *
+   * @param executor the threads on which the blocking parts of the exchange run ( the whole of {@link #send},
+   *                 or the writing of a streamed request body ). Never a shared pool such as the common pool.
+   */
+  default CompletableFuture<TransportResponse> sendAsync(String method, URL url, Map<String, String> headers, Optional<RequestBody> body, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return send(method, url, headers, body);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+}
@@ -13,8 +13,11 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
 import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -57,18 +60,56 @@ public final class XQMsgJSONTypeAdapter implements JsonDeserializer<Map<String,
         return prim.getAsString();
       }else if(prim.isNumber()){
 
-        Number num = prim.getAsNumber();
-        //only render as Long od Double
-     // if(Math.ceil(num.intValue()) == num.intValue())
-     //   return num.intValue();
-     // else
-        if(Math.ceil(num.doubleValue()) == num.longValue())
-          return num.longValue();
-        else{
-          return num.doubleValue();
-        }
+        return toNumber(prim.getAsNumber());
       }
     }
     return null;
   }
+
+  /**
+   * Streaming counterpart of {@link #read(JsonElement)}. Values are built straight from the reader,
+   * without materializing an intermediate {@link JsonElement} tree.<br>
+   * The adapter holds no state, so a single instance can be shared between threads.
+   */
+  public Object read(JsonReader in) throws IOException {
+
+    switch (in.peek()) {
+      case BEGIN_ARRAY: {
+        List<Object> list = new ArrayList<Object>();
+        in.beginArray();
+        while (in.hasNext()) {
+          list.add(read(in));
+        }
+        in.endArray();
+        return list;
+      }
+      case BEGIN_OBJECT: {
+        Map<String, Object> map = new LinkedTreeMap<String, Object>();
+        in.beginObject();
+        while (in.hasNext()) {
+          map.put(in.nextName(), read(in));
+        }
+        in.endObject();
+        return map;
+      }
+      case BOOLEAN:
+        return in.nextBoolean();
+      case STRING:
+        return in.nextString();
+      case NUMBER:
+        return toNumber(new LazilyParsedNumber(in.nextString()));
+      default:
+        in.skipValue();
+        return null;
+    }
+  }
+
+  private static Number toNumber(Number num) {
+    //only render as Long od Double
+    if(Math.ceil(num.doubleValue()) == num.longValue())
+      return num.longValue();
+    else{
+      return num.doubleValue();
+    }
+  }
 }
\ No newline at end of file
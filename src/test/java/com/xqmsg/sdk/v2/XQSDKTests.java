@@ -1,11 +1,25 @@
 package com.xqmsg.sdk.v2;
 
 
+import com.sun.net.httpserver.HttpServer;
+import com.xqmsg.sdk.v2.algorithms.OTPv2Encryption;
+import com.xqmsg.sdk.v2.algorithms.OTPv2RangeReader;
+import com.xqmsg.sdk.v2.algorithms.XQDecryptingInputStream;
+import com.xqmsg.sdk.v2.algorithms.XQEncryptingOutputStream;
+import com.xqmsg.sdk.v2.caching.KeyCache;
+import com.xqmsg.sdk.v2.common.Lanes;
+import com.xqmsg.sdk.v2.common.SingleFlight;
 import com.xqmsg.sdk.v2.exceptions.StatusCodeException;
+import com.xqmsg.sdk.v2.quantum.EntropyPool;
 import com.xqmsg.sdk.v2.quantum.FetchQuantumEntropy;
 import com.xqmsg.sdk.v2.services.*;
 import com.xqmsg.sdk.v2.services.dashboard.*;
+import com.xqmsg.sdk.v2.transport.HttpClientTransport;
+import com.xqmsg.sdk.v2.transport.RequestBody;
+import com.xqmsg.sdk.v2.transport.RequestBodyPublisher;
+import com.xqmsg.sdk.v2.transport.TransportResponse;
 import com.xqmsg.sdk.v2.utils.DateTimeFormats;
+import com.xqmsg.sdk.v2.utils.Destination;
 import org.joda.time.LocalDateTime;
 import org.joda.time.Period;
 import org.junit.jupiter.api.AfterAll;
@@ -16,18 +30,45 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import javax.crypto.ShortBufferException;
 
 import static com.xqmsg.sdk.v2.CallStatus.Ok;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -1079,6 +1120,326 @@ class XQSDKTests {
 
     }
 
+    /**
+     * Encrypts a file larger than the sampler in pipelined mode with both algorithms and decrypts it back with FileDecrypt.
+     * Then makes the key upload fail while the body is being encrypted: the call must fail without a target file.
+     * In every case, no temporary `.part` file may be left once the call has completed.
+     */
+    @Test
+    @Order(105)
+    //@Disabled
+    void testPipelinedFileEncryption() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final Path workDir = Files.createTempDirectory("xq-pipelined");
+        final Path sourceSpec = workDir.resolve("pipelined.txt");
+        final StringBuilder content = new StringBuilder();
+        while (content.length() < 4 * 1024 * 1024) {
+            content.append(Files.readString(Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler"))));
+        }
+        Files.writeString(sourceSpec, content);
+
+        try {
+            for (AlgorithmEnum algorithm : List.of(AlgorithmEnum.AES, AlgorithmEnum.OTPv2)) {
+                final Path encryptedSpec = workDir.resolve(String.format("pipelined.%s.xqf", algorithm));
+                final Path decryptedSpec = workDir.resolve(String.format("pipelined.%s.out.txt", algorithm));
+
+                ServerResponse encryptResponse = FileEncrypt.with(sdk, algorithm)
+                        .supplyAsync(Optional.of(Map.of(FileEncrypt.USER, email,
+                                FileEncrypt.RECIPIENTS, List.of(email),
+                                FileEncrypt.MESSAGE_EXPIRATION_HOURS, 5,
+                                FileEncrypt.SOURCE_FILE_PATH, sourceSpec,
+                                FileEncrypt.TARGET_FILE_PATH, encryptedSpec,
+                                FileEncrypt.PIPELINED, true)))
+                        .get();
+                assertEquals(Ok, encryptResponse.status, encryptResponse.moreInfo());
+                assertEquals(List.of(), partFiles(workDir));
+
+                ServerResponse decryptResponse = FileDecrypt.with(sdk, algorithm)
+                        .supplyAsync(Optional.of(Map.of(FileDecrypt.SOURCE_FILE_PATH, encryptedSpec,
+                                FileDecrypt.TARGET_FILE_PATH, decryptedSpec)))
+                        .get();
+                assertEquals(Ok, decryptResponse.status, decryptResponse.moreInfo());
+                assertEquals(content.toString(), Files.readString(decryptedSpec));
+            }
+
+            // nothing listens on port 1, so the upload fails while the body is still being written
+            final URL subscriptionServerUrl = sdk.SUBSCRIPTION_SERVER_URL;
+            sdk.SUBSCRIPTION_SERVER_URL = new URL("https://127.0.0.1:1/v2");
+            try {
+                for (AlgorithmEnum algorithm : List.of(AlgorithmEnum.AES, AlgorithmEnum.OTPv2)) {
+                    final Path encryptedSpec = workDir.resolve(String.format("failed.%s.xqf", algorithm));
+                    ServerResponse encryptResponse = FileEncrypt.with(sdk, algorithm)
+                            .supplyAsync(Optional.of(Map.of(FileEncrypt.USER, email,
+                                    FileEncrypt.RECIPIENTS, List.of(email),
+                                    FileEncrypt.MESSAGE_EXPIRATION_HOURS, 5,
+                                    FileEncrypt.SOURCE_FILE_PATH, sourceSpec,
+                                    FileEncrypt.TARGET_FILE_PATH, encryptedSpec,
+                                    FileEncrypt.PIPELINED, true)))
+                            .get();
+                    assertEquals(CallStatus.Error, encryptResponse.status);
+                    assertTrue(Files.notExists(encryptedSpec));
+                    assertEquals(List.of(), partFiles(workDir));
+                }
+            } finally {
+                sdk.SUBSCRIPTION_SERVER_URL = subscriptionServerUrl;
+            }
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+
+    /**
+     * Encrypts a batch with an invalid item in the middle, fewer upload lanes than items.
+     * Every item gets its own response in input order: the invalid one fails on its own, and each of the others
+     * decrypts back to its own text.
+     */
+    @Test
+    @Order(101)
+    //@Disabled
+    void testBatchEncrypt() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final List<String> texts = List.of("The first message", "The second message", "A message without recipients", "The fourth message", "The fifth message");
+        final List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < texts.size(); ++i) {
+            items.add(i == 2
+                    ? Map.of(BatchEncrypt.TEXT, texts.get(i), BatchEncrypt.MESSAGE_EXPIRATION_HOURS, 5)
+                    : Map.of(BatchEncrypt.TEXT, texts.get(i), BatchEncrypt.RECIPIENTS, List.of(email), BatchEncrypt.MESSAGE_EXPIRATION_HOURS, 5));
+        }
+
+        ServerResponse response = BatchEncrypt.with(sdk, AlgorithmEnum.AES)
+                .supplyAsync(Optional.of(Map.of(BatchEncrypt.USER, email, BatchEncrypt.ITEMS, items, BatchEncrypt.CONCURRENCY, 2)))
+                .get();
+        assertEquals(Ok, response.status, response.moreInfo());
+
+        final List<ServerResponse> results = (List<ServerResponse>) response.payload.get(ServerResponse.DATA);
+        assertEquals(texts.size(), results.size());
+
+        assertEquals(CallStatus.Error, results.get(2).status);
+        assertEquals(Reasons.MissingParameters, results.get(2).reason);
+
+        final Set<String> locators = new HashSet<>();
+        for (int i = 0; i < texts.size(); ++i) {
+            if (i == 2) {
+                continue;
+            }
+            ServerResponse result = results.get(i);
+            assertEquals(Ok, result.status, result.moreInfo());
+            final String locatorToken = (String) result.payload.get(Encrypt.LOCATOR_KEY);
+            assertTrue(locators.add(locatorToken));
+
+            ServerResponse decrypted = Decrypt.with(sdk, AlgorithmEnum.AES)
+                    .supplyAsync(Optional.of(Map.of(Decrypt.LOCATOR_TOKEN, locatorToken,
+                            Decrypt.ENCRYPTED_TEXT, result.payload.get(Encrypt.ENCRYPTED_TEXT))))
+                    .get();
+            assertEquals(Ok, decrypted.status, decrypted.moreInfo());
+            assertEquals(texts.get(i), decrypted.payload.get(ServerResponse.DATA));
+        }
+    }
+
+    /**
+     * Decrypts a batch which repeats a locator token, and holds an unknown locator token and an incomplete item in the middle.
+     * Every item gets its own response in input order; the two bad ones fail without affecting the others.
+     */
+    @Test
+    @Order(102)
+    //@Disabled
+    void testBatchDecrypt() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final List<String> texts = List.of("The first message", "The second message", "The third message");
+        ServerResponse response = BatchEncrypt.with(sdk, AlgorithmEnum.OTPv2)
+                .supplyAsync(Optional.of(Map.of(BatchEncrypt.USER, email, BatchEncrypt.ITEMS, texts.stream()
+                        .map((text) -> Map.of(BatchEncrypt.TEXT, text, BatchEncrypt.RECIPIENTS, List.of(email), BatchEncrypt.MESSAGE_EXPIRATION_HOURS, 5))
+                        .collect(Collectors.toList()))))
+                .get();
+        assertEquals(Ok, response.status, response.moreInfo());
+        final List<Map<String, Object>> encrypted = ((List<ServerResponse>) response.payload.get(ServerResponse.DATA)).stream()
+                .map((result) -> Map.of(BatchDecrypt.LOCATOR_TOKEN, result.payload.get(Encrypt.LOCATOR_KEY),
+                        BatchDecrypt.ENCRYPTED_TEXT, result.payload.get(Encrypt.ENCRYPTED_TEXT)))
+                .collect(Collectors.toList());
+
+        final List<Map<String, Object>> items = List.of(
+                encrypted.get(0),
+                encrypted.get(1),
+                Map.of(BatchDecrypt.LOCATOR_TOKEN, "xxx-xxx-xxx", BatchDecrypt.ENCRYPTED_TEXT, encrypted.get(2).get(BatchDecrypt.ENCRYPTED_TEXT)),
+                Map.of(BatchDecrypt.LOCATOR_TOKEN, encrypted.get(2).get(BatchDecrypt.LOCATOR_TOKEN)),
+                encrypted.get(0),
+                encrypted.get(2));
+        final List<String> expected = Arrays.asList(texts.get(0), texts.get(1), null, null, texts.get(0), texts.get(2));
+
+        response = BatchDecrypt.with(sdk, AlgorithmEnum.OTPv2)
+                .supplyAsync(Optional.of(Map.of(BatchDecrypt.ITEMS, items, BatchDecrypt.PARALLELISM, 2)))
+                .get();
+        assertEquals(Ok, response.status, response.moreInfo());
+
+        final List<ServerResponse> results = (List<ServerResponse>) response.payload.get(ServerResponse.DATA);
+        assertEquals(items.size(), results.size());
+        for (int i = 0; i < items.size(); ++i) {
+            ServerResponse result = results.get(i);
+            if (expected.get(i) == null) {
+                assertEquals(CallStatus.Error, result.status);
+            } else {
+                assertEquals(Ok, result.status, result.moreInfo());
+                assertEquals(expected.get(i), result.payload.get(ServerResponse.DATA));
+            }
+        }
+        assertEquals(Reasons.MissingParameters, results.get(3).reason);
+    }
+
+    /**
+     * Simulates a crash of a bulk encryption: the manifest ends in a line cut short, and a file changes after it was recorded.
+     * The run which follows encrypts exactly those two files again, and appends them as separate lines,
+     * so that a third run has nothing left to do.
+     */
+    @Test
+    @Order(103)
+    //@Disabled
+    void testBulkFileEncryptResume() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final Path sourceDirectory = Files.createTempDirectory("xq-bulk-source");
+        final Path targetDirectory = Files.createTempDirectory("xq-bulk-target");
+        final Path manifestPath = targetDirectory.resolve(BulkFileEncrypt.DEFAULT_MANIFEST_NAME);
+
+        try {
+            Files.writeString(sourceDirectory.resolve("a.txt"), "first file");
+            Files.writeString(sourceDirectory.resolve("b.txt"), "second file");
+            Files.createDirectories(sourceDirectory.resolve("sub"));
+            final Path changed = Files.writeString(sourceDirectory.resolve("sub").resolve("c.txt"), "third file");
+
+            final Map<String, Object> args = Map.of(BulkFileEncrypt.USER, email,
+                    BulkFileEncrypt.RECIPIENTS, List.of(email),
+                    BulkFileEncrypt.MESSAGE_EXPIRATION_HOURS, 5,
+                    BulkFileEncrypt.SOURCE_DIRECTORY, sourceDirectory,
+                    BulkFileEncrypt.TARGET_DIRECTORY, targetDirectory,
+                    BulkFileEncrypt.PARALLELISM, 2);
+
+            ServerResponse response = BulkFileEncrypt.with(sdk, AlgorithmEnum.OTPv2).supplyAsync(Optional.of(args)).get();
+            assertEquals(Ok, response.status, response.moreInfo());
+            BulkFileEncrypt.Progress progress = (BulkFileEncrypt.Progress) response.payload.get(ServerResponse.DATA);
+            assertEquals(3, progress.filesDone);
+            assertEquals(0, progress.filesSkipped);
+
+            // keep a.txt and sub/c.txt, and cut the line of b.txt short as a crash would
+            List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+            String partial = lines.stream().filter((line) -> line.endsWith("\tb.txt")).findFirst().orElseThrow();
+            StringBuilder manifest = new StringBuilder();
+            lines.stream().filter((line) -> !line.equals(partial)).forEach((line) -> manifest.append(line).append('\n'));
+            manifest.append(partial, 0, partial.length() / 2);
+            Files.writeString(manifestPath, manifest.toString());
+
+            Files.writeString(changed, "third file, changed after it was encrypted");
+            Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+            response = BulkFileEncrypt.with(sdk, AlgorithmEnum.OTPv2).supplyAsync(Optional.of(args)).get();
+            assertEquals(Ok, response.status, response.moreInfo());
+            progress = (BulkFileEncrypt.Progress) response.payload.get(ServerResponse.DATA);
+            assertEquals(3, progress.filesFound);
+            assertEquals(2, progress.filesDone);
+            assertEquals(1, progress.filesSkipped);
+            assertEquals(0, progress.filesFailed);
+
+            final Path decryptedSpec = targetDirectory.resolve("c.out.txt");
+            response = FileDecrypt.with(sdk, AlgorithmEnum.OTPv2)
+                    .supplyAsync(Optional.of(Map.of(FileDecrypt.SOURCE_FILE_PATH, targetDirectory.resolve("sub").resolve("c.txt" + BulkFileEncrypt.TARGET_SUFFIX),
+                            FileDecrypt.TARGET_FILE_PATH, decryptedSpec))).get();
+            assertEquals(Ok, response.status, response.moreInfo());
+            assertEquals("third file, changed after it was encrypted", Files.readString(decryptedSpec));
+
+            response = BulkFileEncrypt.with(sdk, AlgorithmEnum.OTPv2).supplyAsync(Optional.of(args)).get();
+            assertEquals(Ok, response.status, response.moreInfo());
+            progress = (BulkFileEncrypt.Progress) response.payload.get(ServerResponse.DATA);
+            assertEquals(0, progress.filesDone);
+            assertEquals(3, progress.filesSkipped);
+        } finally {
+            deleteRecursively(sourceDirectory);
+            deleteRecursively(targetDirectory);
+        }
+    }
+
+    /**
+     * Decrypts a directory encrypted by {@link BulkFileEncrypt}, to which a file with a corrupt header
+     * and one whose key does not exist were added. Those two are reported as failures; every other file
+     * is decrypted, and they are listed in the order they were found.
+     */
+    @Test
+    @Order(104)
+    //@Disabled
+    void testBulkFileDecrypt() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final Path sourceDirectory = Files.createTempDirectory("xq-bulk-source");
+        final Path encryptedDirectory = Files.createTempDirectory("xq-bulk-encrypted");
+        final Path decryptedDirectory = Files.createTempDirectory("xq-bulk-decrypted");
+
+        try {
+            final Map<String, String> contents = new LinkedHashMap<>();
+            for (int i = 0; i < 6; ++i) {
+                contents.put(String.format(i % 2 == 0 ? "%d.txt" : "sub/%d.txt", i), String.format("the content of file %d", i));
+            }
+            for (Map.Entry<String, String> entry : contents.entrySet()) {
+                Path file = sourceDirectory.resolve(entry.getKey());
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, entry.getValue());
+            }
+
+            ServerResponse response = BulkFileEncrypt.with(sdk, AlgorithmEnum.OTPv2)
+                    .supplyAsync(Optional.of(Map.of(BulkFileEncrypt.USER, email,
+                            BulkFileEncrypt.RECIPIENTS, List.of(email),
+                            BulkFileEncrypt.MESSAGE_EXPIRATION_HOURS, 5,
+                            BulkFileEncrypt.SOURCE_DIRECTORY, sourceDirectory,
+                            BulkFileEncrypt.TARGET_DIRECTORY, encryptedDirectory)))
+                    .get();
+            assertEquals(Ok, response.status, response.moreInfo());
+
+            final var algorithm = sdk.getAlgorithm(AlgorithmEnum.OTPv2);
+            final Path corruptSpec = encryptedDirectory.resolve("corrupt.txt" + BulkFileEncrypt.TARGET_SUFFIX);
+            Files.write(corruptSpec, new byte[]{0x7f, 0x7f, 0x7f, 0x7f, 1, 2, 3});
+            final Path unknownSpec = encryptedDirectory.resolve("sub").resolve("unknown.txt" + BulkFileEncrypt.TARGET_SUFFIX);
+            assertEquals(Ok, algorithm.encrypt(sourceDirectory.resolve("0.txt"), unknownSpec,
+                    algorithm.expandKey(UUID.randomUUID().toString(), 2048), "xxx-xxx-xxx").get().status);
+
+            response = BulkFileDecrypt.with(sdk, AlgorithmEnum.OTPv2)
+                    .supplyAsync(Optional.of(Map.of(BulkFileDecrypt.SOURCE_DIRECTORY, encryptedDirectory,
+                            BulkFileDecrypt.TARGET_DIRECTORY, decryptedDirectory,
+                            BulkFileDecrypt.PARALLELISM, 2,
+                            BulkFileDecrypt.MAX_FETCHES, 2)))
+                    .get();
+            assertEquals(Ok, response.status, response.moreInfo());
+
+            final Map<Path, String> failures = (Map<Path, String>) response.payload.get(BulkFileDecrypt.FAILURES);
+            assertEquals(Set.of(corruptSpec, unknownSpec), failures.keySet());
+
+            final List<Path> expected;
+            try (var files = Files.walk(encryptedDirectory)) {
+                expected = files
+                        .filter((file) -> file.toString().endsWith(BulkFileEncrypt.TARGET_SUFFIX) && !file.equals(corruptSpec) && !file.equals(unknownSpec))
+                        .map((file) -> {
+                            String relativePath = encryptedDirectory.relativize(file).toString();
+                            return decryptedDirectory.resolve(relativePath.substring(0, relativePath.length() - BulkFileEncrypt.TARGET_SUFFIX.length()));
+                        })
+                        .collect(Collectors.toList());
+            }
+            assertEquals(expected, response.payload.get(ServerResponse.DATA));
+
+            for (Map.Entry<String, String> entry : contents.entrySet()) {
+                assertEquals(entry.getValue(), Files.readString(decryptedDirectory.resolve(entry.getKey())));
+            }
+        } finally {
+            deleteRecursively(sourceDirectory);
+            deleteRecursively(encryptedDirectory);
+            deleteRecursively(decryptedDirectory);
+        }
+    }
 
     @Test
     @Order(110)
@@ -1124,6 +1485,992 @@ class XQSDKTests {
 
     }
 
+    /**
+     * A key without whitespace is repeated as is; the copies of a key with whitespace are permutations of its words.
+     * Keys with multi-byte characters are expanded by character, so their UTF-8 encoding stays intact.
+     */
+    @Test
+    @Order(111)
+    void testKeyExpansion() throws Exception {
+
+        final var algorithm = sdk.getAlgorithm(AlgorithmEnum.OTPv2);
+
+        final String entropy = "0123456789abcdef0123456789abcdef";
+        assertEquals(entropy.repeat(4), algorithm.expandKey(entropy, 100));
+        assertArrayEquals(entropy.repeat(4).getBytes(StandardCharsets.UTF_8), algorithm.expandKeyBytes(entropy, 128));
+        assertEquals(entropy.substring(0, 10), algorithm.expandKey(entropy, 10));
+
+        final String words = "alpha beta  gamma\tdelta";
+        final String expanded = algorithm.expandKey(words, 2048);
+        assertEquals(0, expanded.length() % words.length());
+        assertTrue(expanded.length() >= 2048);
+        assertTrue(expanded.startsWith(words));
+        final List<String> sortedWords = Arrays.stream(words.split("\\s")).sorted().collect(Collectors.toList());
+        for (int at = words.length(); at < expanded.length(); at += words.length()) {
+            String copy = expanded.substring(at, at + words.length());
+            assertEquals(sortedWords, Arrays.stream(copy.split(" ", -1)).sorted().collect(Collectors.toList()));
+        }
+
+        final String unicode = "clé 日本語 ключ";
+        final byte[] unicodeBytes = algorithm.expandKeyBytes(unicode, 500);
+        final String decoded = new String(unicodeBytes, StandardCharsets.UTF_8);
+        assertEquals(false, decoded.contains("\uFFFD"));
+        assertEquals(0, decoded.length() % unicode.length());
+        assertEquals(algorithm.expandKey(unicode, 500).length(), decoded.length());
+    }
+
+    /**
+     * Writes the sample file through {@link StreamEncrypt} in uneven chunks and reads it back through {@link StreamDecrypt}.
+     * The containers written to the stream must also be readable by the file API and vice versa;
+     * for OTPv2, which has no salt, the stream output must be byte for byte the file output.
+     */
+    @Test
+    @Order(112)
+    void testStreamEncryptionRoundTrip() throws Exception {
+
+        String email = System.getProperty("xqsdk-user.email");
+
+        final Path originalSpec = Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler"));
+        final byte[] original = Files.readAllBytes(originalSpec);
+        final Path workDir = Files.createTempDirectory("xq-stream");
+
+        try {
+            for (AlgorithmEnum algorithmEnum : List.of(AlgorithmEnum.AES, AlgorithmEnum.OTPv2)) {
+
+                final var algorithm = sdk.getAlgorithm(algorithmEnum);
+
+                // through the server: key upload on the way in, key fetch on the way out
+                final ByteArrayOutputStream container = new ByteArrayOutputStream();
+                ServerResponse encryptResponse = StreamEncrypt.with(sdk, algorithmEnum)
+                        .supplyAsync(Optional.of(Map.of(StreamEncrypt.USER, email,
+                                StreamEncrypt.RECIPIENTS, List.of(email),
+                                StreamEncrypt.MESSAGE_EXPIRATION_HOURS, 5,
+                                StreamEncrypt.TARGET_STREAM, container,
+                                StreamEncrypt.FILE_NAME, originalSpec.getFileName().toString()))).get();
+                assertEquals(Ok, encryptResponse.status, encryptResponse.moreInfo());
+                try (XQEncryptingOutputStream out = (XQEncryptingOutputStream) encryptResponse.payload.get(ServerResponse.DATA)) {
+                    writeInChunks(out, original);
+                }
+
+                ServerResponse decryptResponse = StreamDecrypt.with(sdk, algorithmEnum)
+                        .supplyAsync(Optional.of(Map.of(StreamDecrypt.SOURCE_STREAM, new ByteArrayInputStream(container.toByteArray())))).get();
+                assertEquals(Ok, decryptResponse.status, decryptResponse.moreInfo());
+                try (XQDecryptingInputStream in = (XQDecryptingInputStream) decryptResponse.payload.get(ServerResponse.DATA)) {
+                    assertEquals(encryptResponse.payload.get(Encrypt.LOCATOR_KEY), in.getLocatorToken());
+                    assertArrayEquals(original, readInChunks(in));
+                }
+
+                // against the file API, with a local key
+                final String key = algorithm.expandKey(UUID.randomUUID().toString(), 2048);
+                final String locatorToken = "stream-locator";
+
+                final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+                try (XQEncryptingOutputStream out = new XQEncryptingOutputStream(algorithm, streamed, key, locatorToken, originalSpec.getFileName().toString())) {
+                    writeInChunks(out, original);
+                }
+                final Path fileEncrypted = workDir.resolve(String.format("%s.xqf", algorithmEnum));
+                assertEquals(Ok, algorithm.encrypt(originalSpec, fileEncrypted, key, locatorToken).get().status);
+                if (algorithmEnum == AlgorithmEnum.OTPv2) {
+                    assertArrayEquals(Files.readAllBytes(fileEncrypted), streamed.toByteArray());
+                }
+
+                try (InputStream source = Files.newInputStream(fileEncrypted)) {
+                    assertEquals(locatorToken, algorithm.readLocatorToken(source));
+                    try (XQDecryptingInputStream in = new XQDecryptingInputStream(algorithm, source, locatorToken, key)) {
+                        assertArrayEquals(original, readInChunks(in));
+                    }
+                }
+
+                final Path streamedSpec = workDir.resolve(String.format("%s.streamed.xqf", algorithmEnum));
+                Files.write(streamedSpec, streamed.toByteArray());
+                ServerResponse fileDecryptResponse = algorithm.decrypt(streamedSpec, workDir.resolve(String.format("%s.out.txt", algorithmEnum)),
+                        (aLocatorToken) -> CompletableFuture.completedFuture(locatorToken.equals(aLocatorToken) ? key : null)).get();
+                assertEquals(Ok, fileDecryptResponse.status, fileDecryptResponse.moreInfo());
+                assertArrayEquals(original, Files.readAllBytes((Path) fileDecryptResponse.payload.get(ServerResponse.DATA)));
+            }
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * Encrypts and decrypts between heap and direct buffers, starting at a non-zero position, for a range of lengths.
+     * The ciphertext must be what the text variants read once base64 is added, and an output buffer which is too small
+     * must be rejected without moving either buffer.
+     */
+    @Test
+    @Order(113)
+    void testByteBufferEncryption() throws Exception {
+
+        final String sampler = Files.readString(Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler")));
+
+        for (AlgorithmEnum algorithmEnum : List.of(AlgorithmEnum.AES, AlgorithmEnum.OTPv2)) {
+
+            final var algorithm = sdk.getAlgorithm(algorithmEnum);
+            final String key = algorithm.expandKey(UUID.randomUUID().toString(), 4096);
+
+            for (int length : List.of(0, 1, 15, 16, 17, 1000, 4000)) {
+
+                final byte[] plaintext = Arrays.copyOf(sampler.getBytes(StandardCharsets.UTF_8), length);
+
+                for (boolean direct : List.of(false, true)) {
+
+                    final ByteBuffer src = allocate(direct, length + 3).position(3);
+                    src.put(plaintext).flip().position(3);
+                    final ByteBuffer encrypted = allocate(direct, algorithm.maxEncryptedLength(length) + 5).position(5);
+
+                    final int encryptedLength = algorithm.encrypt(src, encrypted, key);
+                    assertEquals(0, src.remaining());
+                    assertEquals(5 + encryptedLength, encrypted.position());
+
+                    encrypted.flip().position(5);
+                    final byte[] ciphertext = new byte[encryptedLength];
+                    encrypted.duplicate().get(ciphertext);
+
+                    final ByteBuffer decrypted = allocate(direct, algorithm.maxDecryptedLength(encryptedLength));
+                    final int decryptedLength = algorithm.decrypt(encrypted, decrypted, key);
+                    assertEquals(length, decryptedLength);
+                    final byte[] roundTrip = new byte[decryptedLength];
+                    decrypted.flip().get(roundTrip);
+                    assertArrayEquals(plaintext, roundTrip);
+
+                    // base64 is only an outer layer: the text variant reads the same bytes
+                    if (length > 0 && sampler.startsWith(new String(plaintext, StandardCharsets.UTF_8))) {
+                        ServerResponse textResponse = algorithm.decrypt(Base64.getEncoder().encodeToString(ciphertext), key).get();
+                        assertEquals(new String(plaintext, StandardCharsets.UTF_8), textResponse.payload.get(ServerResponse.DATA));
+                    }
+                }
+            }
+
+            final ByteBuffer src = ByteBuffer.wrap(sampler.getBytes(StandardCharsets.UTF_8), 0, 100);
+            final ByteBuffer tooSmall = ByteBuffer.allocate(algorithm.maxEncryptedLength(100) - 1);
+            try {
+                algorithm.encrypt(src, tooSmall, key);
+                fail("a short output buffer must be rejected");
+            } catch (ShortBufferException e) {
+                assertEquals(0, src.position());
+                assertEquals(0, tooSmall.position());
+            }
+        }
+    }
+
+    /**
+     * Decrypts ranges of an OTPv2 file at the start, across key boundaries and at the end, and compares them with the original.
+     * The header is cached but the key is not: every open retrieves the key again, so one which is no longer returned
+     * ( e.g. revoked ) cannot open the file even though its header is cached. A corrupt header is rejected.
+     */
+    @Test
+    @Order(114)
+    void testOTPv2RangeDecryption() throws Exception {
+
+        final Path originalSpec = Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler"));
+        final byte[] original = Files.readAllBytes(originalSpec);
+        final Path workDir = Files.createTempDirectory("xq-range");
+        final Path encryptedSpec = workDir.resolve("range.xqf");
+
+        final OTPv2Encryption algorithm = (OTPv2Encryption) sdk.getAlgorithm(AlgorithmEnum.OTPv2);
+        final String key = algorithm.expandKey(UUID.randomUUID().toString(), 2048);
+        final int keyLength = key.getBytes(StandardCharsets.UTF_8).length;
+
+        final AtomicInteger keyRequests = new AtomicInteger();
+        final Map<String, String> keys = new HashMap<>(Map.of("range-locator", key));
+        final Function<String, CompletableFuture<String>> retrieveKey = (aLocatorToken) -> {
+            keyRequests.incrementAndGet();
+            return CompletableFuture.completedFuture(keys.get(aLocatorToken));
+        };
+
+        try {
+            assertEquals(Ok, algorithm.encrypt(originalSpec, encryptedSpec, key, "range-locator").get().status);
+
+            ServerResponse openResponse = algorithm.openRange(encryptedSpec, retrieveKey).get();
+            assertEquals(Ok, openResponse.status, openResponse.moreInfo());
+            try (OTPv2RangeReader reader = (OTPv2RangeReader) openResponse.payload.get(ServerResponse.DATA)) {
+                assertEquals("range-locator", reader.getLocatorToken());
+                assertEquals(originalSpec.getFileName().toString(), reader.getFileName());
+                assertEquals(original.length, reader.length());
+
+                for (long[] range : new long[][]{{0, 1}, {0, 100}, {7, 9}, {keyLength - 3, 10}, {keyLength, keyLength},
+                        {2L * keyLength + 1, 5000}, {original.length - 10, 10}, {original.length - 10, 100}}) {
+                    final int offset = (int) range[0];
+                    final byte[] buffer = new byte[(int) range[1] + 4];
+                    final int read = reader.read(offset, buffer, 2, (int) range[1]);
+                    final int expected = Math.min((int) range[1], original.length - offset);
+                    assertEquals(expected, read);
+                    assertArrayEquals(Arrays.copyOfRange(original, offset, offset + expected), Arrays.copyOfRange(buffer, 2, 2 + read));
+                }
+
+                ByteBuffer direct = ByteBuffer.allocateDirect(64).position(8);
+                assertEquals(56, reader.read(keyLength - 20, direct));
+                assertEquals(64, direct.position());
+                byte[] directBytes = new byte[56];
+                direct.position(8);
+                direct.get(directBytes);
+                assertArrayEquals(Arrays.copyOfRange(original, keyLength - 20, keyLength + 36), directBytes);
+
+                assertEquals(-1, reader.read(original.length, new byte[10], 0, 10));
+                try {
+                    reader.read(-1, new byte[10], 0, 10);
+                    fail("a negative offset must be rejected");
+                } catch (IllegalArgumentException e) {
+                    logger.info(e.getMessage());
+                }
+            }
+            assertEquals(1, keyRequests.get());
+
+            // the header is cached, the key is retrieved again
+            openResponse = algorithm.openRange(encryptedSpec, retrieveKey).get();
+            assertEquals(Ok, openResponse.status, openResponse.moreInfo());
+            ((OTPv2RangeReader) openResponse.payload.get(ServerResponse.DATA)).close();
+            assertEquals(2, keyRequests.get());
+
+            keys.clear();
+            openResponse = algorithm.openRange(encryptedSpec, retrieveKey).get();
+            assertEquals(CallStatus.Error, openResponse.status);
+            assertEquals(Reasons.MissingEncryptionKey, openResponse.reason);
+            assertEquals(3, keyRequests.get());
+
+            // a file name length far beyond the end of the file
+            byte[] corrupt = Files.readAllBytes(encryptedSpec);
+            int filenameLengthAt = 4 + "range-locator".length();
+            corrupt[filenameLengthAt] = (byte) 0xff;
+            corrupt[filenameLengthAt + 1] = (byte) 0xff;
+            corrupt[filenameLengthAt + 2] = (byte) 0xff;
+            corrupt[filenameLengthAt + 3] = (byte) 0x7f;
+            final Path corruptSpec = workDir.resolve("corrupt.xqf");
+            Files.write(corruptSpec, corrupt);
+            keys.put("range-locator", key);
+            openResponse = algorithm.openRange(corruptSpec, retrieveKey).get();
+            assertEquals(CallStatus.Error, openResponse.status);
+            assertEquals(Reasons.IOException, openResponse.reason);
+        } finally {
+            algorithm.evictRange(encryptedSpec);
+            try (var files = Files.list(workDir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * Starts 1000 file decryptions at once, and only hands out the key once every one of them has asked for it.
+     * This can only finish if no decryption holds a thread while it waits for its key:
+     * a blocking implementation starves the I/O pool after as many decryptions as it has threads.
+     * No server is involved; the key is stored locally.
+     */
+    @Test
+    @Order(115)
+    void testParallelFileDecryptionDoesNotStarve() throws Exception {
+
+        final int count = 1000;
+        final Path originalSpec = Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler"));
+        final String originalFileContent = Files.readString(originalSpec);
+        final Path workDir = Files.createTempDirectory("xq-parallel-decrypt");
+
+        try {
+            for (AlgorithmEnum algorithmEnum : List.of(AlgorithmEnum.AES, AlgorithmEnum.OTPv2)) {
+
+                final var algorithm = sdk.getAlgorithm(algorithmEnum);
+                final String key = algorithm.expandKey(UUID.randomUUID().toString(), 2048);
+                final Path encryptedSpec = workDir.resolve(String.format("%s.xqf", algorithmEnum));
+
+                ServerResponse encryptResponse = algorithm.encrypt(originalSpec, encryptedSpec, key, "parallel-decrypt-locator").get();
+                assertEquals(Ok, encryptResponse.status);
+
+                final CompletableFuture<String> allRequested = new CompletableFuture<>();
+                final AtomicInteger requested = new AtomicInteger();
+
+                List<CompletableFuture<ServerResponse>> decryptions = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    decryptions.add(algorithm.decrypt(encryptedSpec, workDir.resolve(String.format("%s-%d.out.txt", algorithmEnum, i)),
+                            (aLocatorToken) -> {
+                                if (requested.incrementAndGet() == count) {
+                                    allRequested.complete(key);
+                                }
+                                return allRequested;
+                            }));
+                }
+
+                try {
+                    CompletableFuture.allOf(decryptions.toArray(CompletableFuture<?>[]::new)).get(60, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    fail(String.format("%s: only %d of %d decryptions asked for their key", algorithmEnum, requested.get(), count));
+                }
+
+                for (CompletableFuture<ServerResponse> decryption : decryptions) {
+                    ServerResponse decryptResponse = decryption.get();
+                    assertEquals(Ok, decryptResponse.status, decryptResponse.moreInfo());
+                    assertEquals(originalFileContent, Files.readString((Path) decryptResponse.payload.get(ServerResponse.DATA)));
+                }
+            }
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+
+    /**
+     * Identical calls made while one is in flight share its result and do not start a call of their own;
+     * once it completes, successfully or not, the next call starts afresh.
+     */
+    @Test
+    @Order(116)
+    void testSingleFlight() throws Exception {
+
+        final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final CompletableFuture<String> server = new CompletableFuture<>();
+
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            callers.add(singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                return server;
+            }));
+        }
+        CompletableFuture<String> other = singleFlight.execute("other-key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(9, singleFlight.coalescedCount());
+        assertEquals(1, singleFlight.inFlightCount());
+        assertEquals("other", other.get());
+
+        // every caller gets its own copy: cancelling one leaves the others waiting for the result
+        callers.get(0).cancel(true);
+        server.complete("result");
+        assertTrue(callers.get(0).isCancelled());
+        for (CompletableFuture<String> caller : callers.subList(1, callers.size())) {
+            assertEquals("result", caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, singleFlight.inFlightCount());
+
+        // released after completion: the next call goes to the server again
+        assertEquals("again", singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("again");
+        }).get());
+        assertEquals(3, calls.get());
+
+        // failures reach every caller and release the key as well
+        final CompletableFuture<String> failing = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.execute("key", () -> failing);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> failing);
+        failing.completeExceptionally(new IllegalStateException("server down"));
+        for (CompletableFuture<String> caller : List.of(first, second)) {
+            try {
+                caller.get(5, TimeUnit.SECONDS);
+                fail("a failed call must not complete normally");
+            } catch (ExecutionException e) {
+                assertEquals("server down", e.getCause().getMessage());
+            }
+        }
+        CompletableFuture<String> thrown = singleFlight.execute("key", () -> {
+            throw new IllegalStateException("not started");
+        });
+        assertTrue(thrown.isCompletedExceptionally());
+        assertEquals(0, singleFlight.inFlightCount());
+
+    }
+
+    /**
+     * Exercises the key cache on its own: least recently used eviction, expiry after the shorter of
+     * the configured time-to-live and the server's expiration, a key revoked while it was being fetched,
+     * and a key uploaded with delete-on-receipt.
+     */
+    @Test
+    @Order(117)
+    void testKeyCache() throws Exception {
+
+        final String profile = "test-user@xqmsg.com";
+
+        KeyCache keyCache = new KeyCache(2, TimeUnit.MINUTES.toMillis(5));
+        assertTrue(keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        assertTrue(keyCache.put("locator-2", profile, "key-2", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        assertEquals("key-1", keyCache.get("locator-1", profile));
+        assertTrue(keyCache.put("locator-3", profile, "key-3", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        assertEquals(2, keyCache.size());
+        assertEquals(null, keyCache.get("locator-2", profile));
+        assertEquals("key-1", keyCache.get("locator-1", profile));
+        assertEquals(null, keyCache.get("locator-1", "another-user@xqmsg.com"));
+
+        // expiry: the server's expiration is shorter than the time-to-live, and the other way around
+        keyCache = new KeyCache(10, 200);
+        assertTrue(keyCache.put("locator-1", profile, "key-1", 50, keyCache.generation()));
+        assertTrue(keyCache.put("locator-2", profile, "key-2", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        assertEquals(false, keyCache.put("locator-3", profile, "key-3", 0, keyCache.generation()));
+        Thread.sleep(100);
+        assertEquals(null, keyCache.get("locator-1", profile));
+        assertEquals("key-2", keyCache.get("locator-2", profile));
+        Thread.sleep(200);
+        assertEquals(null, keyCache.get("locator-2", profile));
+        assertEquals(0, keyCache.size());
+
+        // revoked while the key was being fetched: the late put must not cache it again
+        keyCache = new KeyCache(10, TimeUnit.MINUTES.toMillis(5));
+        long generation = keyCache.generation();
+        keyCache.invalidate("locator-1");
+        assertEquals(false, keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), generation));
+        assertEquals(null, keyCache.get("locator-1", profile));
+        // other locators and later fetches are not affected
+        assertTrue(keyCache.put("locator-2", profile, "key-2", TimeUnit.MINUTES.toMillis(5), generation));
+        assertTrue(keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        generation = keyCache.generation();
+        keyCache.invalidate("locator-2", profile);
+        assertEquals(false, keyCache.put("locator-2", profile, "key-2", TimeUnit.MINUTES.toMillis(5), generation));
+        generation = keyCache.generation();
+        keyCache.clear();
+        assertEquals(false, keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), generation));
+
+        // revocations forgotten to make room still turn away fetches which started before them
+        keyCache = new KeyCache(1, TimeUnit.MINUTES.toMillis(5));
+        generation = keyCache.generation();
+        keyCache.invalidate("locator-1");
+        keyCache.invalidate("locator-2");
+        assertEquals(false, keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), generation));
+
+        // delete-on-receipt keys are never cached
+        keyCache = new KeyCache(10, TimeUnit.MINUTES.toMillis(5));
+        assertTrue(keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+        keyCache.exclude("locator-1");
+        assertEquals(null, keyCache.get("locator-1", profile));
+        assertEquals(false, keyCache.put("locator-1", profile, "key-1", TimeUnit.MINUTES.toMillis(5), keyCache.generation()));
+
+    }
+
+    /**
+     * A large entropy block is cut into 256 bit slices, each in the form of a regular {@link FetchQuantumEntropy} response:
+     * base64 around 64 hex characters. Nothing is handed out twice, and a short remainder or an invalid block yields nothing.
+     */
+    @Test
+    @Order(118)
+    void testEntropyPoolSlice() throws Exception {
+
+        final Random random = new Random(42);
+        final StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 4096 / 4 + 10; ++i) {
+            hex.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        final String block = Base64.getEncoder().encodeToString(hex.toString().getBytes(StandardCharsets.US_ASCII));
+
+        List<String> slices = EntropyPool.slice(block);
+        assertEquals(16, slices.size());
+
+        StringBuilder joined = new StringBuilder();
+        for (String slice : slices) {
+            String sliceHex = new String(Base64.getDecoder().decode(slice), StandardCharsets.US_ASCII);
+            assertEquals(64, sliceHex.length());
+            assertTrue(sliceHex.matches("[0-9a-f]+"));
+            joined.append(sliceHex);
+        }
+        assertEquals(hex.substring(0, 4096 / 4), joined.toString());
+        assertEquals(slices.size(), new HashSet<>(slices).size());
+
+        assertEquals(1, EntropyPool.slice(Base64.getEncoder().encodeToString(hex.substring(0, 64).getBytes(StandardCharsets.US_ASCII)) + "\n").size());
+        assertEquals(0, EntropyPool.slice(Base64.getEncoder().encodeToString(hex.substring(0, 63).getBytes(StandardCharsets.US_ASCII))).size());
+        assertEquals(0, EntropyPool.slice("not base64 !").size());
+        assertEquals(0, EntropyPool.slice(null).size());
+
+    }
+
+    /**
+     * A corrupt or truncated header is reported as an I/O error before any key is requested,
+     * however large the lengths it claims; a key which cannot be retrieved is reported as such.
+     */
+    @Test
+    @Order(119)
+    void testCorruptFileHeader() throws Exception {
+
+        final Path originalSpec = Paths.get(String.format("src/test/resources/%s.txt", "utf-8-sampler"));
+        final Path workDir = Files.createTempDirectory("xq-corrupt");
+
+        try {
+            for (AlgorithmEnum algorithmEnum : new AlgorithmEnum[]{AlgorithmEnum.OTPv2, AlgorithmEnum.AES}) {
+                final var algorithm = sdk.getAlgorithm(algorithmEnum);
+                final String key = algorithm.expandKey(UUID.randomUUID().toString(), 2048);
+                final Path encryptedSpec = workDir.resolve(String.format("%s.xqf", algorithmEnum));
+                final Path decryptedSpec = workDir.resolve(String.format("%s.txt", algorithmEnum));
+                assertEquals(Ok, algorithm.encrypt(originalSpec, encryptedSpec, key, "corrupt-locator").get().status);
+                final byte[] encrypted = Files.readAllBytes(encryptedSpec);
+
+                final AtomicInteger keyRequests = new AtomicInteger();
+                final Function<String, CompletableFuture<String>> retrieveKey = (aLocatorToken) -> {
+                    keyRequests.incrementAndGet();
+                    return CompletableFuture.completedFuture(key);
+                };
+
+                List<byte[]> corruptFiles = new ArrayList<>();
+                // a locator token length of almost 2 GiB
+                byte[] corrupt = encrypted.clone();
+                Arrays.fill(corrupt, 0, 4, (byte) 0x7f);
+                corruptFiles.add(corrupt);
+                // a negative locator token length
+                corrupt = encrypted.clone();
+                Arrays.fill(corrupt, 0, 4, (byte) 0xff);
+                corruptFiles.add(corrupt);
+                // cut off inside the header
+                corruptFiles.add(Arrays.copyOf(encrypted, 4 + "corrupt-locator".length() + 2));
+                if (algorithmEnum == AlgorithmEnum.OTPv2) {
+                    // a file name length far beyond the end of the file
+                    corrupt = encrypted.clone();
+                    Arrays.fill(corrupt, 4 + "corrupt-locator".length(), 4 + "corrupt-locator".length() + 4, (byte) 0x7f);
+                    corruptFiles.add(corrupt);
+                }
+
+                for (byte[] corruptFile : corruptFiles) {
+                    final Path corruptSpec = workDir.resolve(String.format("%s-corrupt.xqf", algorithmEnum));
+                    Files.write(corruptSpec, corruptFile);
+                    ServerResponse response = algorithm.decrypt(corruptSpec, decryptedSpec, retrieveKey).get();
+                    assertEquals(CallStatus.Error, response.status, algorithmEnum.toString());
+                    assertEquals(Reasons.IOException, response.reason, response.moreInfo());
+                }
+                assertEquals(0, keyRequests.get());
+
+                ServerResponse response = algorithm.decrypt(encryptedSpec, decryptedSpec,
+                        (aLocatorToken) -> CompletableFuture.failedFuture(new IllegalStateException("revoked"))).get();
+                assertEquals(CallStatus.Error, response.status);
+                assertEquals(Reasons.MissingEncryptionKey, response.reason);
+
+                response = algorithm.decrypt(encryptedSpec, decryptedSpec, retrieveKey).get();
+                assertEquals(Ok, response.status, response.moreInfo());
+                assertEquals(1, keyRequests.get());
+                assertArrayEquals(Files.readAllBytes(originalSpec), Files.readAllBytes(decryptedSpec));
+            }
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * Decodes responses straight from the body stream. A status response carrying a listing of many entries is parsed into maps
+     * wherever its status appears; a listing without a status, plain text, malformed JSON and an empty body come back as the text sent.
+     */
+    @Test
+    @Order(121)
+    void testReceiveDataFromStream() throws Exception {
+
+        final int count = 2000;
+        final StringBuilder entries = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            entries.append(i == 0 ? "" : ",\n    ")
+                    .append(String.format("{\"id\": %d, \"email\": \"user-%d@xqmsg.com\", \"active\": %b, \"score\": %d.5}", i, i, i % 2 == 0, i));
+        }
+        final String listing = String.format("[\n    %s\n  ]", entries);
+
+        for (String body : List.of(
+                String.format("{\"status\": \"OK\", \"groups\": %s, \"count\": %d}", listing, count),
+                String.format("\n  {\"groups\": %s,\n  \"count\": %d,\n  \"status\": \"OK\"}\n", listing, count))) {
+
+            ServerResponse response = sdk.convertToServerResponse(sdk.receiveData(respond(200, body)));
+            assertEquals(Ok, response.status, response.moreInfo());
+            assertEquals((long) count, response.payload.get("count"));
+            final List<Map<String, Object>> groups = (List<Map<String, Object>>) response.payload.get("groups");
+            assertEquals(count, groups.size());
+            for (int i = 0; i < count; ++i) {
+                final Map<String, Object> group = groups.get(i);
+                assertEquals((long) i, group.get("id"));
+                assertEquals(String.format("user-%d@xqmsg.com", i), group.get("email"));
+                assertEquals(i % 2 == 0, group.get("active"));
+                assertEquals(i + 0.5, group.get("score"));
+            }
+        }
+
+        // without a top-level status ( one inside an entry does not count ) the listing is not parsed, but kept as the text sent ( with its lines trimmed )
+        final String statusless = String.format("{\n  \"groups\": %s,\n  \"owner\": {\"status\": \"OK\"},\n  \"note\": \"a=b & <c>\"\n}", listing);
+        ServerResponse response = sdk.convertToServerResponse(sdk.receiveData(respond(200, statusless)));
+        assertEquals(Ok, response.status, response.moreInfo());
+        assertEquals(statusless.lines().map(String::trim).collect(Collectors.joining()), response.payload.get(ServerResponse.DATA));
+
+        for (String[] text : new String[][]{{"  a-locator-token \n", "a-locator-token"}, {"{not json", "{not json"}, {" \n ", "No Content"}, {"", "No Content"}}) {
+            response = sdk.convertToServerResponse(sdk.receiveData(respond(200, text[0])));
+            assertEquals(Ok, response.status, response.moreInfo());
+            assertEquals(text[1], response.payload.get(ServerResponse.DATA));
+        }
+
+        try {
+            sdk.receiveData(respond(401, "{\"status\": \"Unauthorized\"}"));
+            fail("an error status must be reported as an exception");
+        } catch (IOException e) {
+            assertEquals("{\"status\": \"Unauthorized\"}", e.getMessage());
+        }
+    }
+
+    /**
+     * Encrypts the same content sequentially and in parallel chunks ( a threshold of 1 byte splits every file ),
+     * for sizes on both sides of the buffer and the key boundaries. The files must be identical byte for byte,
+     * and either instance must decrypt what the other encrypted.
+     */
+    @Test
+    @Order(122)
+    void testParallelOTPv2MatchesSequential() throws Exception {
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final OTPv2Encryption parallel = new OTPv2Encryption(pool, pool, 4096, 1);
+        final OTPv2Encryption sequential = new OTPv2Encryption(pool, pool, 4096, -1);
+        // the buffer size is raised to the minimum
+        final int bufferSize = OTPv2Encryption.MIN_BUFFER_SIZE;
+
+        final String key = sequential.expandKey(UUID.randomUUID().toString(), 2048);
+        final int keyLength = key.getBytes(StandardCharsets.UTF_8).length;
+        final Random random = new Random(16);
+        final Path workDir = Files.createTempDirectory("xq-parallel-otp");
+
+        try {
+            for (int size : List.of(0, 1, keyLength - 1, keyLength, keyLength + 1,
+                    bufferSize - 1, bufferSize, bufferSize + 1, 3 * bufferSize + keyLength + 7, 40 * bufferSize + 13)) {
+
+                final byte[] original = new byte[size];
+                random.nextBytes(original);
+                final Path originalSpec = workDir.resolve(String.format("original-%d.bin", size));
+                Files.write(originalSpec, original);
+
+                final Path sequentialSpec = workDir.resolve(String.format("sequential-%d.xqf", size));
+                final Path parallelSpec = workDir.resolve(String.format("parallel-%d.xqf", size));
+                assertEquals(Ok, sequential.encrypt(originalSpec, sequentialSpec, key, "parallel-locator").get().status);
+                assertEquals(Ok, parallel.encrypt(originalSpec, parallelSpec, key, "parallel-locator").get().status);
+                assertArrayEquals(Files.readAllBytes(sequentialSpec), Files.readAllBytes(parallelSpec), String.format("%d bytes", size));
+
+                for (OTPv2Encryption[] pair : new OTPv2Encryption[][]{{parallel, sequential}, {sequential, parallel}}) {
+                    final Path encryptedSpec = pair[0] == parallel ? parallelSpec : sequentialSpec;
+                    final Path decryptedSpec = workDir.resolve(String.format("decrypted-%d.bin", size));
+                    ServerResponse response = pair[1].decrypt(encryptedSpec, decryptedSpec,
+                            (aLocatorToken) -> CompletableFuture.completedFuture(key)).get();
+                    assertEquals(Ok, response.status, response.moreInfo());
+                    assertArrayEquals(original, Files.readAllBytes(decryptedSpec), String.format("%d bytes", size));
+                    Files.delete(decryptedSpec);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Encrypts and decrypts many small files and a few large ones: small contents go through heap buffers and large ones
+     * borrow one of a few pooled direct buffers, so the number of direct buffers must not grow with the number of files.
+     * Runs once on a pool and once on an executor starting a new thread per task, as `io-executor=virtual` does,
+     * where a buffer kept per thread would never be reused.
+     */
+    @Test
+    @Order(123)
+    void testOTPv2FilesReuseDirectMemory() throws Exception {
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final List<Thread> perTaskThreads = Collections.synchronizedList(new ArrayList<>());
+        final Executor threadPerTask = (runnable) -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            perTaskThreads.add(thread);
+            thread.start();
+        };
+        final BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(bufferPool -> "direct".equals(bufferPool.getName()))
+                .findFirst().orElseThrow();
+        final Random random = new Random(15);
+        final Path workDir = Files.createTempDirectory("xq-direct-otp");
+
+        try {
+            for (Executor ioExecutor : List.of(pool, threadPerTask)) {
+                final OTPv2Encryption algorithm = new OTPv2Encryption(pool, ioExecutor, OTPv2Encryption.MIN_BUFFER_SIZE, -1, 4);
+                final String key = algorithm.expandKey(UUID.randomUUID().toString(), 2048);
+                final Path filesDir = Files.createDirectory(workDir.resolve(ioExecutor == pool ? "pooled" : "per-task"));
+                final long directBuffersBefore = directPool.getCount();
+                final int count = 500;
+                List<CompletableFuture<ServerResponse>> encryptions = new ArrayList<>(count);
+                for (int i = 0; i < count; ++i) {
+                    final byte[] original = new byte[i % 5 == 0 ? 3 * OTPv2Encryption.MIN_BUFFER_SIZE + i : 100 + i];
+                    random.nextBytes(original);
+                    final Path originalSpec = filesDir.resolve(String.format("original-%d.bin", i));
+                    Files.write(originalSpec, original);
+                    encryptions.add(algorithm.encrypt(originalSpec, filesDir.resolve(String.format("encrypted-%d.xqf", i)), key, "direct-locator"));
+                }
+                for (CompletableFuture<ServerResponse> encryption : encryptions) {
+                    assertEquals(Ok, encryption.get().status);
+                }
+                for (int i = 0; i < count; i += 7) {
+                    final Path decryptedSpec = filesDir.resolve(String.format("decrypted-%d.bin", i));
+                    ServerResponse response = algorithm.decrypt(filesDir.resolve(String.format("encrypted-%d.xqf", i)), decryptedSpec,
+                            (aLocatorToken) -> CompletableFuture.completedFuture(key)).get();
+                    assertEquals(Ok, response.status, response.moreInfo());
+                    assertArrayEquals(Files.readAllBytes(filesDir.resolve(String.format("original-%d.bin", i))), Files.readAllBytes(decryptedSpec));
+                }
+                // a buffer per thread, or per file, would go well past the four pooled ones
+                assertTrue(algorithm.directBufferCount() <= 4, String.format("%d direct buffers allocated", algorithm.directBufferCount()));
+                // the temporary buffers the JDK caches per thread are freed as each thread ends
+                for (Thread thread : List.copyOf(perTaskThreads)) {
+                    thread.join();
+                }
+                // nor may anything else hold on to direct memory per file ( the JDK caches a few temporary buffers per pool thread )
+                final long allocated = directPool.getCount() - directBuffersBefore;
+                assertTrue(allocated < 50, String.format("%d direct buffers allocated for %d files", allocated, count));
+            }
+        } finally {
+            pool.shutdown();
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Drains more items than lanes, with tasks completing on other threads and one task failing:
+     * no more tasks may be in flight than there are lanes, every item must be taken exactly once,
+     * and the returned future must complete only after the last task.
+     */
+    @Test
+    @Order(124)
+    void testLanesBoundTasksInFlight() throws Exception {
+
+        final ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            final int lanes = 3;
+            final List<Integer> items = new ArrayList<>();
+            for (int i = 0; i < 200; ++i) {
+                items.add(i);
+            }
+            final AtomicInteger inFlight = new AtomicInteger();
+            final AtomicInteger maxInFlight = new AtomicInteger();
+            final AtomicInteger finished = new AtomicInteger();
+            final Set<Integer> taken = Collections.synchronizedSet(new HashSet<>());
+
+            Lanes.drain(items, lanes, (item) -> {
+                assertTrue(taken.add(item), String.format("item %d taken twice", item));
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    finished.incrementAndGet();
+                    if (item == 17) {
+                        throw new IllegalStateException("failed on purpose");
+                    }
+                    return item;
+                }, pool);
+            }, pool).get(30, TimeUnit.SECONDS);
+
+            assertEquals(items.size(), finished.get());
+            assertEquals(items.size(), taken.size());
+            assertTrue(maxInFlight.get() <= lanes, String.format("%d tasks in flight with %d lanes", maxInFlight.get(), lanes));
+
+            assertTrue(Lanes.drain(List.of(), lanes, (item) -> CompletableFuture.completedFuture(item), pool).isDone());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Takes from an empty pool while the server fails: after the first failed refill, further takes must only
+     * fall back to a single call each, until the backoff delay has passed. The delay doubles with every failure
+     * and the pool fills again once the server recovers.
+     */
+    @Test
+    @Order(125)
+    void testEntropyPoolBacksOffAfterFailedRefill() throws Exception {
+
+        final AtomicInteger refillCalls = new AtomicInteger();
+        final AtomicInteger fallbackCalls = new AtomicInteger();
+        final AtomicInteger serverUp = new AtomicInteger();
+        final String block = Base64.getEncoder().encodeToString("0123456789abcdef".repeat(16).getBytes(StandardCharsets.US_ASCII));
+
+        final EntropyPool pool = new EntropyPool(sdk, 2, 4, 1024, 200, 10_000) {
+            @Override
+            protected CompletableFuture<ServerResponse> fetch(Optional<Map<String, Object>> maybeArgs) {
+                (maybeArgs.isPresent() ? refillCalls : fallbackCalls).incrementAndGet();
+                return CompletableFuture.completedFuture(serverUp.get() == 0
+                        ? new ServerResponse(CallStatus.Error, Reasons.InternalException, "Service Unavailable")
+                        : new ServerResponse(Ok, Map.of(ServerResponse.DATA, block)));
+            }
+        };
+
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(CallStatus.Error, pool.take().get().status);
+        }
+        assertEquals(1, refillCalls.get());
+        assertEquals(50, fallbackCalls.get());
+        assertEquals(1, pool.consecutiveFailedRefillCount());
+
+        // the first backoff has passed, the second one is twice as long
+        Thread.sleep(300);
+        pool.take().get();
+        assertEquals(2, refillCalls.get());
+        Thread.sleep(300);
+        pool.take().get();
+        assertEquals(2, refillCalls.get());
+        assertEquals(2, pool.consecutiveFailedRefillCount());
+
+        serverUp.set(1);
+        Thread.sleep(200);
+        pool.take().get();
+        assertEquals(3, refillCalls.get());
+        assertEquals(0, pool.consecutiveFailedRefillCount());
+        assertTrue(pool.depth() >= 2, String.format("depth %d after the server recovered", pool.depth()));
+        assertEquals(Ok, pool.take().get().status);
+        assertEquals(53, fallbackCalls.get());
+    }
+
+    /**
+     * Posts bodies of known and unknown length to a local server, synchronously and asynchronously, with only two I/O threads:
+     * the server must receive every byte, with a declared length only when the body knows it.
+     * Four times as many large bodies as there are I/O threads, posted at once, must all get through,
+     * both through the transport and through {@link XQSDK#callAsync}.
+     * A subscriber which stops asking for chunks must hold the writer back after a few of them.
+     */
+    @Test
+    @Order(126)
+    void testHttpClientTransportStreamsRequestBody() throws Exception {
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/echo", (exchange) -> {
+            final CRC32 crc = new CRC32();
+            long received = 0;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                for (int n; (n = in.read(buffer)) != -1; received += n) {
+                    crc.update(buffer, 0, n);
+                }
+            }
+            final byte[] reply = String.format("%d %d %s", received, crc.getValue(), exchange.getRequestHeaders().getFirst("Content-Length"))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, reply.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(reply);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final ExecutorService clientExecutor = Executors.newFixedThreadPool(1);
+
+        try {
+            final HttpClientTransport transport = new HttpClientTransport(clientExecutor);
+            final URL url = new URL(String.format("http://127.0.0.1:%d/echo", server.getAddress().getPort()));
+            final byte[] data = new byte[3 * RequestBodyPublisher.CHUNK_SIZE * RequestBodyPublisher.MAX_CHUNKS_AHEAD + 11];
+            new Random(5).nextBytes(data);
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+
+            final RequestBody unknownLength = new RequestBody() {
+                @Override
+                public long contentLength() {
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    writeInChunks(out, data);
+                }
+            };
+
+            for (RequestBody body : List.of(RequestBody.of(data), unknownLength)) {
+                final String expected = String.format("%d %d %s", data.length, crc.getValue(), body.contentLength() >= 0 ? String.valueOf(data.length) : null);
+                try (TransportResponse response = transport.send("POST", url, Map.of(), Optional.of(body))) {
+                    assertEquals(200, response.statusCode());
+                    assertEquals(expected, new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+                }
+                try (TransportResponse response = transport.sendAsync("POST", url, Map.of(), Optional.of(body), executor).get(30, TimeUnit.SECONDS)) {
+                    assertEquals(200, response.statusCode());
+                    assertEquals(expected, new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+
+            // every I/O thread ends up waiting for the client to take the next chunk of a body
+            final List<CompletableFuture<TransportResponse>> concurrent = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                concurrent.add(transport.sendAsync("POST", url, Map.of(), Optional.of(unknownLength), executor));
+            }
+            for (CompletableFuture<TransportResponse> pending : concurrent) {
+                try (TransportResponse response = pending.get(60, TimeUnit.SECONDS)) {
+                    assertEquals(String.format("%d %d null", data.length, crc.getValue()), new String(response.body().readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+
+            // the same through the SDK, with its own I/O and network executors
+            final int ioThreads = sdk.getIoExecutor() instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) sdk.getIoExecutor()).getMaximumPoolSize() : 8;
+            final String text = "x".repeat(data.length);
+            final List<CompletableFuture<ServerResponse>> calls = new ArrayList<>();
+            for (int i = 0; i < 4 * ioThreads; ++i) {
+                calls.add(sdk.callAsync(new URL(String.format("http://127.0.0.1:%d", server.getAddress().getPort())), Optional.of("echo"),
+                        CallMethod.Post, Optional.empty(), Optional.of(Destination.XQ), Optional.of(Map.of(ServerResponse.DATA, text))));
+            }
+            for (CompletableFuture<ServerResponse> call : calls) {
+                ServerResponse response = call.get(60, TimeUnit.SECONDS);
+                assertEquals(Ok, response.status, response.moreInfo());
+                assertTrue(((String) response.payload.get(ServerResponse.DATA)).startsWith(String.format("%d ", text.length() + "{\"data\":\"\"}".length())));
+            }
+
+            // a subscriber which asks for one chunk only
+            final AtomicInteger written = new AtomicInteger();
+            final AtomicInteger delivered = new AtomicInteger();
+            final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+            final CompletableFuture<Void> completed = new CompletableFuture<>();
+            new RequestBodyPublisher(new RequestBody() {
+                @Override
+                public long contentLength() {
+                    return -1;
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    for (int i = 0; i < data.length; ++i) {
+                        out.write(data[i]);
+                        written.incrementAndGet();
+                    }
+                }
+            }, executor).subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(1);
+                    subscribed.complete(subscription);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    delivered.addAndGet(item.remaining());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    completed.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.complete(null);
+                }
+            });
+            Thread.sleep(300);
+            assertEquals(RequestBodyPublisher.CHUNK_SIZE, delivered.get());
+            assertTrue(written.get() <= (RequestBodyPublisher.MAX_CHUNKS_AHEAD + 2) * RequestBodyPublisher.CHUNK_SIZE,
+                    String.format("%d bytes written while the subscriber took one chunk", written.get()));
+            subscribed.get().request(Long.MAX_VALUE);
+            completed.get(30, TimeUnit.SECONDS);
+            assertEquals(data.length, delivered.get());
+        } finally {
+            executor.shutdownNow();
+            clientExecutor.shutdownNow();
+            server.stop(0);
+        }
+    }
 
     @Test
     @Order(120)
@@ -1263,6 +2610,49 @@ class XQSDKTests {
     //////////////////////////////////////////////////////////////////////////////////////////////////
 
 
+    /**
+     * Writes in chunks of varying size, so that no chunk lines up with a cipher block or a key boundary.
+     */
+    private static void writeInChunks(OutputStream out, byte[] data) throws IOException {
+        int offset = 0;
+        for (int chunk = 1; offset < data.length; chunk = chunk * 3 % 1021 + 1) {
+            int length = Math.min(chunk, data.length - offset);
+            out.write(data, offset, length);
+            offset += length;
+        }
+    }
+
+    private static TransportResponse respond(int statusCode, String body) {
+        return new TransportResponse(statusCode, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static ByteBuffer allocate(boolean direct, int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static byte[] readInChunks(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[997];
+        for (int chunk = 1, read; (read = in.read(buffer, 0, chunk)) != -1; chunk = chunk * 7 % buffer.length + 1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Path> partFiles(Path directory) throws IOException {
+        try (var paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".part")).collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
     private String getPinFromTerminalInput() {
         return readOneLineFromTerminalInput("Code", "Please enter the pin number");
     }